@@ -0,0 +1,44 @@
+package fi.vm.yti.datamodel.api.v2.benchmark;
+
+import fi.vm.yti.datamodel.api.v2.service.JSONSchemaBuilder;
+import fi.vm.yti.datamodel.api.v2.service.OpenAPIBuilder;
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON Schema and OpenAPI exports of application profiles with the given number of resources
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int size;
+
+    private Model jsonSchemaModel;
+    private Model openApiModel;
+
+    @Setup
+    public void setUp() {
+        jsonSchemaModel = SyntheticModels.generate("/json-schema-data.ttl", size);
+        openApiModel = SyntheticModels.generate("/open-api-data.ttl", size);
+    }
+
+    @Benchmark
+    public void exportJSONSchema() {
+        JSONSchemaBuilder.export(Writer.nullWriter(), jsonSchemaModel, "en");
+    }
+
+    @Benchmark
+    public void exportOpenAPI() throws IOException {
+        OpenAPIBuilder.export(Writer.nullWriter(), openApiModel, "en");
+    }
+}
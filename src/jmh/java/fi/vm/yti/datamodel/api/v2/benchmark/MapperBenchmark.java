@@ -0,0 +1,118 @@
+package fi.vm.yti.datamodel.api.v2.benchmark;
+
+import fi.vm.yti.common.enums.GraphType;
+import fi.vm.yti.common.enums.Status;
+import fi.vm.yti.datamodel.api.v2.dto.visualization.VisualizationClassDTO;
+import fi.vm.yti.datamodel.api.v2.mapper.ClassMapper;
+import fi.vm.yti.datamodel.api.v2.mapper.ModelMapper;
+import fi.vm.yti.datamodel.api.v2.mapper.ResourceMapper;
+import fi.vm.yti.datamodel.api.v2.mapper.VisualizationMapper;
+import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
+import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
+import fi.vm.yti.datamodel.api.v2.repository.SchemesRepository;
+import fi.vm.yti.datamodel.api.v2.service.GraphCatalogService;
+import fi.vm.yti.datamodel.api.v2.service.TerminologyService;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.OWL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.topbraid.shacl.vocabulary.SH;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mapping of data models and their resources. Models are generated from the fixtures
+ * with the given number of resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int size;
+
+    private Model profile;
+    private Model library;
+    private Model organizations;
+    private ModelMapper modelMapper;
+    private List<String> nodeShapes;
+    private List<String> libraryResources;
+    private String nodeShape;
+    private Map<String, String> namespaces;
+
+    @Setup
+    public void setUp() {
+        profile = SyntheticModels.generate("/models/test_datamodel_profile_with_resources.ttl", size);
+        library = SyntheticModels.generate("/models/test_datamodel_library_with_resources.ttl", size);
+        organizations = SyntheticModels.load("/organizations.ttl");
+
+        var coreRepository = mock(CoreRepository.class);
+        when(coreRepository.getServiceCategories()).thenReturn(SyntheticModels.load("/service-categories.ttl"));
+        when(coreRepository.getOrganizations()).thenReturn(organizations);
+        var graphCatalogService = mock(GraphCatalogService.class);
+        when(graphCatalogService.get(anyString())).thenAnswer(a -> {
+            String graph = a.getArgument(0);
+            return new GraphCatalogService.GraphMetadata(graph, graph, null, GraphType.LIBRARY, "int",
+                    Map.of("fi", "int"), Status.VALID, Set.of(), Set.of(), Set.of(), null, 0, 0);
+        });
+        modelMapper = new ModelMapper(coreRepository, mock(ImportsRepository.class), mock(SchemesRepository.class),
+                mock(TerminologyService.class), graphCatalogService);
+
+        nodeShapes = SyntheticModels.listResources(profile, SH.NodeShape);
+        nodeShape = nodeShapes.get(nodeShapes.size() / 2);
+        libraryResources = List.of(OWL.Class, OWL.ObjectProperty, OWL.DatatypeProperty).stream()
+                .flatMap(type -> SyntheticModels.listResources(library, type).stream())
+                .toList();
+        namespaces = Map.of("https://www.example.com/ns/ext", "extres");
+    }
+
+    @Benchmark
+    public Object mapToDataModelDTO() {
+        return modelMapper.mapToDataModelDTO(SyntheticModels.PREFIX, profile, null);
+    }
+
+    @Benchmark
+    public Object mapToNodeShapeDTO() {
+        var localName = nodeShape.substring(SyntheticModels.NAMESPACE.length());
+        return ClassMapper.mapToNodeShapeDTO(profile,
+                DataModelURI.Factory.createResourceURI(SyntheticModels.PREFIX, localName),
+                organizations, true, null);
+    }
+
+    /**
+     * Index documents of all resources, as created when a version is released
+     */
+    @Benchmark
+    public void mapToIndexResources(Blackhole blackhole) {
+        libraryResources.forEach(uri -> blackhole.consume(ResourceMapper.mapToIndexResource(library, uri)));
+    }
+
+    /**
+     * Properties of all node shapes, as mapped for the visualization of an application profile
+     */
+    @Benchmark
+    public void mapNodeShapeResources(Blackhole blackhole) {
+        nodeShapes.forEach(uri -> {
+            var classDTO = new VisualizationClassDTO();
+            var externalResources = new HashSet<Resource>();
+            VisualizationMapper.mapNodeShapeResources(classDTO, profile.getResource(uri), profile,
+                    externalResources, namespaces);
+            blackhole.consume(classDTO);
+            blackhole.consume(externalResources);
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package fi.vm.yti.datamodel.api.v2.benchmark;
+
+import fi.vm.yti.common.Constants;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.List;
+
+/**
+ * Generates data models of given size from the test fixtures
+ */
+public final class SyntheticModels {
+
+    public static final String PREFIX = "test";
+    public static final String NAMESPACE = Constants.DATA_MODEL_NAMESPACE + PREFIX + "/";
+
+    private SyntheticModels() {
+    }
+
+    public static Model load(String file) {
+        var model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, SyntheticModels.class.getResourceAsStream(file), Lang.TURTLE);
+        return model;
+    }
+
+    /**
+     * Create a model with at least the given number of resources by copying the resources of the fixture.
+     * Copies are named with a running number (e.g. test:TestClass-12) and references between the resources
+     * point to the resources of the same copy.
+     * @param file fixture in the test namespace
+     * @param size number of resources
+     * @return model
+     */
+    public static Model generate(String file, int size) {
+        var fixture = load(file);
+        var templates = fixture.listSubjects()
+                .filterKeep(s -> s.isURIResource() && s.getURI().startsWith(NAMESPACE) && !s.getURI().equals(NAMESPACE))
+                .toSet();
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("No resources in " + file);
+        }
+
+        var model = ModelFactory.createDefaultModel().setNsPrefixes(fixture.getNsPrefixMap());
+        fixture.listStatements()
+                .filterDrop(stmt -> templates.contains(stmt.getSubject()))
+                .forEach(model::add);
+
+        var copies = (size + templates.size() - 1) / templates.size();
+        for (int i = 0; i < copies; i++) {
+            var suffix = "-" + i;
+            fixture.listStatements()
+                    .filterKeep(stmt -> templates.contains(stmt.getSubject()))
+                    .forEach(stmt -> {
+                        RDFNode object = stmt.getObject();
+                        if (object.isURIResource() && templates.contains(object.asResource())) {
+                            object = model.createResource(object.asResource().getURI() + suffix);
+                        } else if (stmt.getPredicate().equals(DCTerms.identifier) && object.isLiteral()) {
+                            var literal = object.asLiteral();
+                            object = model.createTypedLiteral(literal.getLexicalForm() + suffix, literal.getDatatype());
+                        }
+                        model.add(model.createResource(stmt.getSubject().getURI() + suffix), stmt.getPredicate(), object);
+                    });
+        }
+        return model;
+    }
+
+    /**
+     * @return uris of the resources with the given type
+     */
+    public static List<String> listResources(Model model, Resource type) {
+        return model.listSubjectsWithProperty(RDF.type, type)
+                .filterDrop(RDFNode::isAnon)
+                .mapWith(Resource::getURI)
+                .toList();
+    }
+}
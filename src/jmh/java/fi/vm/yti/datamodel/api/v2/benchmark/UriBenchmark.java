@@ -0,0 +1,45 @@
+package fi.vm.yti.datamodel.api.v2.benchmark;
+
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import fi.vm.yti.datamodel.api.v2.utils.SemVer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of data model uris and comparison of version numbers, done for most resources in the mappers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UriBenchmark {
+
+    private final List<String> uris = List.of(
+            SyntheticModels.NAMESPACE,
+            SyntheticModels.NAMESPACE + "TestClass",
+            SyntheticModels.NAMESPACE + "1.0.0/",
+            SyntheticModels.NAMESPACE + "1.0.0/TestClass",
+            "http://uri.suomi.fi/terminology/test/concept-1",
+            "https://www.example.com/ns/ext#resource");
+
+    private final List<String[]> versions = List.of(
+            new String[]{"1.0.0", "1.0.1"},
+            new String[]{"1.10.0", "1.2.0"},
+            new String[]{"2.0.0-beta.1", "2.0.0"},
+            new String[]{"1.0.0", "1.0.0"});
+
+    @Benchmark
+    public void fromURI(Blackhole blackhole) {
+        uris.forEach(uri -> blackhole.consume(DataModelURI.Factory.fromURI(uri)));
+    }
+
+    @Benchmark
+    public void compareSemVers(Blackhole blackhole) {
+        versions.forEach(v -> blackhole.consume(SemVer.compareSemVers(v[0], v[1])));
+    }
+}
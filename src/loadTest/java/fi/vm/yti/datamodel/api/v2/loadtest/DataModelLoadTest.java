@@ -0,0 +1,260 @@
+package fi.vm.yti.datamodel.api.v2.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.vm.yti.common.opensearch.OpenSearchClientWrapper;
+import fi.vm.yti.common.opensearch.SearchResponseDTO;
+import fi.vm.yti.common.service.GroupManagementService;
+import fi.vm.yti.datamodel.api.v2.Application;
+import fi.vm.yti.datamodel.api.v2.StartUpListener;
+import fi.vm.yti.datamodel.api.v2.dto.ClassDTO;
+import fi.vm.yti.datamodel.api.v2.service.CodeListService;
+import fi.vm.yti.datamodel.api.v2.service.DataModelService;
+import fi.vm.yti.datamodel.api.v2.service.DataModelSubscriptionService;
+import fi.vm.yti.datamodel.api.v2.service.IndexService;
+import fi.vm.yti.datamodel.api.v2.service.TerminologyService;
+import fi.vm.yti.security.AuthenticatedUserProvider;
+import fi.vm.yti.security.YtiUser;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Drives the REST endpoints concurrently against an embedded Fuseki server seeded with generated models,
+ * and reports throughput and latency percentiles per endpoint. OpenSearch, group management, terminologies,
+ * code lists and notifications are mocked, so the test runs offline.
+ * <p>
+ * Configured with system properties (passed from Gradle -P properties):
+ * loadtest.models (number of seeded models), loadtest.resources (resources per model),
+ * loadtest.threads (concurrent requests) and loadtest.requests (requests per endpoint).
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.cloud.config.import-check.enabled=false",
+        "migration.enabled=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DataModelLoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataModelLoadTest.class);
+
+    private static final EmbeddedFuseki FUSEKI = new EmbeddedFuseki();
+
+    private static final int MODELS = Integer.getInteger("loadtest.models", 4);
+    private static final int RESOURCES = Integer.getInteger("loadtest.resources", 1000);
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 8);
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 200);
+
+    private static final YtiUser SUPER_USER = new YtiUser("loadtest@localhost",
+            "load",
+            "test",
+            UUID.randomUUID(),
+            true,
+            false,
+            LocalDateTime.of(2001, 1, 1, 0, 0),
+            LocalDateTime.of(2001, 1, 1, 0, 0),
+            new HashMap<>(Map.of()),
+            "",
+            "");
+
+    @MockBean
+    private StartUpListener startUpListener;
+    @MockBean
+    private IndexService indexService;
+    @MockBean
+    private OpenSearchClientWrapper openSearchClient;
+    @MockBean
+    private GroupManagementService groupManagementService;
+    @MockBean
+    private AuthenticatedUserProvider userProvider;
+    @MockBean
+    private TerminologyService terminologyService;
+    @MockBean
+    private CodeListService codeListService;
+    @MockBean
+    private DataModelSubscriptionService dataModelSubscriptionService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataModelService dataModelService;
+
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    // number of copies of TestClass in each generated model
+    private int classCopies;
+
+    @DynamicPropertySource
+    static void fusekiProperties(DynamicPropertyRegistry registry) {
+        FUSEKI.start();
+        registry.add("fuseki.url", FUSEKI::getURL);
+        registry.add("endpoint", FUSEKI::getURL);
+    }
+
+    @BeforeAll
+    void seed() {
+        var start = System.currentTimeMillis();
+        var generator = new ModelGenerator();
+        for (int i = 0; i < MODELS; i++) {
+            var model = generator.generate(modelPrefix(i), RESOURCES);
+            classCopies = model.listSubjects()
+                    .filterKeep(s -> s.isURIResource() && s.getLocalName().startsWith("TestClass-"))
+                    .toList().size();
+            FUSEKI.put("core", ModelGenerator.getGraphURI(modelPrefix(i)), model);
+        }
+        // each release needs a model of its own
+        for (int i = 0; i < THREADS; i++) {
+            FUSEKI.put("core", ModelGenerator.getGraphURI(releasePrefix(i)), generator.generate(releasePrefix(i), RESOURCES));
+        }
+        LOG.info("Seeded {} models with {} resources in {} ms", MODELS + THREADS, RESOURCES,
+                System.currentTimeMillis() - start);
+    }
+
+    @AfterAll
+    void stop() {
+        FUSEKI.stop();
+    }
+
+    @Test
+    void runLoadTest() throws Exception {
+        when(userProvider.getUser()).thenReturn(SUPER_USER);
+        var emptyResponse = new SearchResponseDTO<>();
+        emptyResponse.setResponseObjects(List.of());
+        doReturn(emptyResponse).when(openSearchClient).search(any(SearchRequest.class), any());
+
+        run("GET /v2/model/{prefix}/draft", REQUESTS,
+                i -> get("/v2/model/{prefix}/draft", modelPrefix(i)));
+        run("GET /v2/visualization/{prefix}", REQUESTS,
+                i -> get("/v2/visualization/{prefix}", modelPrefix(i)));
+        run("GET /v2/export/{prefix}", REQUESTS,
+                i -> get("/v2/export/{prefix}", modelPrefix(i)).header("Accept", "text/turtle"));
+        run("POST /v2/class/library/{prefix}", REQUESTS,
+                i -> post("/v2/class/library/{prefix}", modelPrefix(i))
+                        .contentType(APPLICATION_JSON)
+                        .content(toJson(createClassDTO("LoadClass" + i))));
+        run("PUT /v2/class/library/{prefix}/{identifier}", REQUESTS,
+                i -> put("/v2/class/library/{prefix}/{identifier}", modelPrefix(i), "TestClass-" + (i / MODELS) % classCopies)
+                        .contentType(APPLICATION_JSON)
+                        .content(toJson(createClassDTO(null))));
+        run("POST /v2/model/{prefix}/release", THREADS,
+                i -> post("/v2/model/{prefix}/release", releasePrefix(i))
+                        .param("version", "1.0.0")
+                        .param("status", "VALID"));
+
+        var start = System.nanoTime();
+        IntStream.range(0, THREADS).forEach(i -> dataModelService.awaitRelease(releasePrefix(i), "1.0.0"));
+        LOG.info("Release jobs finished {} ms after the last release request", (System.nanoTime() - start) / 1_000_000);
+
+        var report = recorder.report();
+        LOG.info("Load test results ({} models, {} resources, {} threads):\n{}",
+                MODELS, RESOURCES, THREADS, String.join("\n", report));
+        recorder.write(Path.of(System.getProperty("loadtest.reportDir", "build/reports/loadtest"), "results.csv"));
+
+        for (var line : report.subList(1, report.size())) {
+            var columns = line.split(";");
+            assertEquals("0", columns[2], "Failed requests to " + columns[0]);
+        }
+    }
+
+    /**
+     * Send requests concurrently and record their latencies
+     * @param endpoint name of the endpoint in the report
+     * @param requests number of requests
+     * @param request creates the request with the given running number
+     */
+    private void run(String endpoint, int requests, IntFunction<RequestBuilder> request) {
+        recorder.start(endpoint);
+        var executor = Executors.newFixedThreadPool(THREADS);
+        var start = System.nanoTime();
+        try {
+            var futures = IntStream.range(0, requests)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> send(endpoint, request.apply(i)), executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        } finally {
+            executor.shutdown();
+        }
+        recorder.finish(endpoint, System.nanoTime() - start);
+    }
+
+    private void send(String endpoint, RequestBuilder request) {
+        var start = System.nanoTime();
+        var success = false;
+        try {
+            var result = mvc.perform(request).andReturn();
+            // streaming responses (exports) are written in an async dispatch
+            if (result.getRequest().isAsyncStarted()) {
+                result = mvc.perform(asyncDispatch(result)).andReturn();
+            }
+            var status = result.getResponse().getStatus();
+            success = status >= 200 && status < 300;
+            if (!success) {
+                LOG.warn("{} returned {}: {}", endpoint, status, result.getResponse().getContentAsString());
+            }
+        } catch (Exception e) {
+            LOG.warn("{} failed", endpoint, e);
+        }
+        recorder.record(endpoint, System.nanoTime() - start, success);
+    }
+
+    private static String modelPrefix(int i) {
+        return "load" + (i % MODELS);
+    }
+
+    private static String releasePrefix(int i) {
+        return "release" + i;
+    }
+
+    private static ClassDTO createClassDTO(String identifier) {
+        var dto = new ClassDTO();
+        dto.setIdentifier(identifier);
+        dto.setLabel(Map.of("fi", "load test class"));
+        dto.setNote(Map.of("fi", "load test note"));
+        return dto;
+    }
+
+    private String toJson(Object object) {
+        try {
+            return objectMapper.writeValueAsString(object);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
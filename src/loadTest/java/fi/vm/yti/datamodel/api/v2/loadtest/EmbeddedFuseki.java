@@ -0,0 +1,56 @@
+package fi.vm.yti.datamodel.api.v2.loadtest;
+
+import org.apache.jena.fuseki.main.FusekiServer;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.system.Txn;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process Fuseki server with in-memory datasets used by the repositories
+ */
+public class EmbeddedFuseki {
+
+    public static final List<String> DATASETS = List.of("core", "imports", "concept", "scheme", "terminology");
+
+    private final Map<String, Dataset> datasets = new LinkedHashMap<>();
+    private FusekiServer server;
+
+    public synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        var builder = FusekiServer.create()
+                .port(0)
+                .loopback(true);
+        DATASETS.forEach(name -> {
+            var dataset = DatasetFactory.createTxnMem();
+            datasets.put(name, dataset);
+            builder.add("/" + name, dataset);
+        });
+        server = builder.build().start();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+    }
+
+    public String getURL() {
+        return "http://localhost:" + server.getHttpPort();
+    }
+
+    /**
+     * Write graph directly to the dataset, without going through the HTTP endpoints
+     */
+    public void put(String dataset, String graph, Model model) {
+        var ds = datasets.get(dataset);
+        Txn.executeWrite(ds, () -> ds.replaceNamedModel(graph, model));
+    }
+}
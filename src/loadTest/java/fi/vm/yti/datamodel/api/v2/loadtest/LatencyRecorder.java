@@ -0,0 +1,82 @@
+package fi.vm.yti.datamodel.api.v2.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects request latencies by endpoint and reports throughput and percentiles
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Queue<Long>> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicInteger> errors = new LinkedHashMap<>();
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+
+    public synchronized void start(String endpoint) {
+        latencies.put(endpoint, new ConcurrentLinkedQueue<>());
+        errors.put(endpoint, new AtomicInteger());
+    }
+
+    /**
+     * @param endpoint endpoint
+     * @param nanos duration of the request
+     * @param success false if the request failed
+     */
+    public void record(String endpoint, long nanos, boolean success) {
+        latencies.get(endpoint).add(nanos);
+        if (!success) {
+            errors.get(endpoint).incrementAndGet();
+        }
+    }
+
+    /**
+     * @param endpoint endpoint
+     * @param nanos wall clock time of all requests to the endpoint
+     */
+    public synchronized void finish(String endpoint, long nanos) {
+        durations.put(endpoint, nanos);
+    }
+
+    public synchronized int getErrors(String endpoint) {
+        return errors.get(endpoint).get();
+    }
+
+    public synchronized List<String> report() {
+        var lines = new ArrayList<String>();
+        lines.add("endpoint;requests;errors;throughput (req/s);p50 (ms);p99 (ms);max (ms)");
+        latencies.forEach((endpoint, values) -> {
+            var sorted = values.stream().sorted().toList();
+            var seconds = durations.getOrDefault(endpoint, 0L) / 1e9;
+            lines.add(String.format("%s;%d;%d;%.1f;%.1f;%.1f;%.1f",
+                    endpoint,
+                    sorted.size(),
+                    errors.get(endpoint).get(),
+                    seconds > 0 ? sorted.size() / seconds : 0,
+                    percentile(sorted, 50) / 1e6,
+                    percentile(sorted, 99) / 1e6,
+                    sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1) / 1e6));
+        });
+        return lines;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, report());
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        var index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
@@ -0,0 +1,88 @@
+package fi.vm.yti.datamodel.api.v2.loadtest;
+
+import fi.vm.yti.common.Constants;
+import fi.vm.yti.datamodel.api.v2.properties.DCAP;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates library data models from the test fixture. Resources of the fixture are copied until the model
+ * has the given number of resources, copies are named with a running number (e.g. TestClass-12).
+ */
+public class ModelGenerator {
+
+    private static final String FIXTURE = "/models/test_datamodel_library_with_resources.ttl";
+    private static final String FIXTURE_NAMESPACE = Constants.DATA_MODEL_NAMESPACE + "test/";
+
+    private final String template;
+
+    public ModelGenerator() {
+        try (var stream = ModelGenerator.class.getResourceAsStream(FIXTURE)) {
+            if (stream == null) {
+                throw new IllegalStateException("Fixture not found: " + FIXTURE);
+            }
+            template = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String getGraphURI(String prefix) {
+        return Constants.DATA_MODEL_NAMESPACE + prefix + "/";
+    }
+
+    /**
+     * @param prefix prefix of the model
+     * @param size number of resources
+     * @return draft model
+     */
+    public Model generate(String prefix, int size) {
+        var namespace = getGraphURI(prefix);
+        var fixture = ModelFactory.createDefaultModel();
+        RDFParser.fromString(template.replace(FIXTURE_NAMESPACE, namespace))
+                .lang(Lang.TURTLE)
+                .parse(fixture);
+
+        var modelResource = fixture.getResource(namespace);
+        modelResource.removeAll(DCAP.preferredXMLNamespacePrefix)
+                .removeAll(OWL.priorVersion)
+                .addProperty(DCAP.preferredXMLNamespacePrefix, prefix);
+
+        var templates = fixture.listSubjects()
+                .filterKeep(s -> s.isURIResource() && s.getURI().startsWith(namespace) && !s.getURI().equals(namespace))
+                .toSet();
+
+        var model = ModelFactory.createDefaultModel().setNsPrefixes(fixture.getNsPrefixMap());
+        model.setNsPrefix(prefix, namespace);
+        fixture.listStatements()
+                .filterDrop(stmt -> templates.contains(stmt.getSubject()))
+                .forEach(model::add);
+
+        var copies = Math.max(1, (size + templates.size() - 1) / templates.size());
+        for (int i = 0; i < copies; i++) {
+            var suffix = "-" + i;
+            fixture.listStatements()
+                    .filterKeep(stmt -> templates.contains(stmt.getSubject()))
+                    .forEach(stmt -> {
+                        RDFNode object = stmt.getObject();
+                        if (object.isURIResource() && templates.contains(object.asResource())) {
+                            object = model.createResource(object.asResource().getURI() + suffix);
+                        } else if (stmt.getPredicate().equals(DCTerms.identifier) && object.isLiteral()) {
+                            var literal = object.asLiteral();
+                            object = model.createTypedLiteral(literal.getLexicalForm() + suffix, literal.getDatatype());
+                        }
+                        model.add(model.createResource(stmt.getSubject().getURI() + suffix), stmt.getPredicate(), object);
+                    });
+        }
+        return model;
+    }
+}
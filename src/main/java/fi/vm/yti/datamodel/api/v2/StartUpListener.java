@@ -2,49 +2,121 @@ package fi.vm.yti.datamodel.api.v2;
 
 import fi.vm.yti.common.service.GroupManagementService;
 import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
+import fi.vm.yti.datamodel.api.v2.service.GraphCatalogService;
 import fi.vm.yti.datamodel.api.v2.service.IndexService;
 import fi.vm.yti.datamodel.api.v2.service.NamespaceService;
 import fi.vm.yti.migration.MigrationConfig;
 import fi.vm.yti.migration.MigrationInitializer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Initializes data needed by the application. Independent steps are run in parallel, and the steps
+ * not needed for serving requests (default namespaces, external resource index, graph catalog) are run in the background
+ * after the startup. Status of the background steps is reported with the health endpoint.
+ */
 @Component
 @ImportAutoConfiguration(MigrationConfig.class)
 public class StartUpListener {
 
+    public enum StepStatus { PENDING, RUNNING, DONE, FAILED }
+
     private static final Logger logger = LoggerFactory.getLogger(StartUpListener.class);
 
     private final GroupManagementService groupManagementService;
     private final IndexService indexService;
     private final CoreRepository coreRepository;
     private final NamespaceService namespaceService;
+    private final GraphCatalogService graphCatalogService;
+
+    private final Map<String, StepStatus> backgroundSteps = new ConcurrentHashMap<>();
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "startup-background");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Autowired
     StartUpListener(GroupManagementService groupManagementService,
                     IndexService indexService,
                     NamespaceService namespaceService,
                     MigrationInitializer migrationInitializer,
-                    CoreRepository coreRepository) {
+                    CoreRepository coreRepository,
+                    GraphCatalogService graphCatalogService) {
         this.groupManagementService = groupManagementService;
         this.indexService = indexService;
         this.namespaceService = namespaceService;
         this.coreRepository = coreRepository;
+        this.graphCatalogService = graphCatalogService;
     }
 
     @PostConstruct
     public void contextInitialized() {
         logger.info("System is starting ...");
+        var start = System.currentTimeMillis();
+
+        // users are initialized after organizations, and indexes after service categories,
+        // since service categories are needed for mapping data models' groups
+        var serviceCategories = CompletableFuture.runAsync(this::initServiceCategories);
+        var steps = CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> {
+                    initOrganizations();
+                    initUsers();
+                }),
+                serviceCategories.thenRunAsync(indexService::initIndexes)
+        );
+        try {
+            steps.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        logger.info("Startup initialization done in {} ms", System.currentTimeMillis() - start);
+
+        runInBackground("defaultNamespaces", this::initDefaultNamespaces);
+        runInBackground("externalIndex", indexService::initExternalIndex);
+        runInBackground("graphCatalog", graphCatalogService::init);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backgroundExecutor.shutdownNow();
+    }
+
+    /**
+     * @return status of the steps run in the background by step name
+     */
+    public Map<String, StepStatus> getBackgroundStatus() {
+        return new LinkedHashMap<>(backgroundSteps);
+    }
 
-        initOrganizations();
-        initUsers();
-        initServiceCategories();
-        indexService.initIndexes();
-        initDefaultNamespaces();
+    private void runInBackground(String step, Runnable runnable) {
+        backgroundSteps.put(step, StepStatus.PENDING);
+        backgroundExecutor.execute(() -> {
+            backgroundSteps.put(step, StepStatus.RUNNING);
+            try {
+                runnable.run();
+                backgroundSteps.put(step, StepStatus.DONE);
+            } catch (Exception e) {
+                logger.error("Startup step {} failed", step, e);
+                backgroundSteps.put(step, StepStatus.FAILED);
+            }
+        });
     }
 
     private void initOrganizations() {
@@ -0,0 +1,201 @@
+package fi.vm.yti.datamodel.api.v2.config;
+
+import fi.vm.yti.common.opensearch.OpenSearchClientWrapper;
+import fi.vm.yti.common.opensearch.SearchResponseDTO;
+import fi.vm.yti.common.repository.BaseRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.Model;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records timings of Fuseki and OpenSearch calls. Repositories and the OpenSearch client are defined in
+ * yti-common-backend, so they are wrapped in a proxy instead of instrumenting the calls one by one.
+ * <p>
+ * Timers (fuseki.requests, opensearch.requests) are tagged with the dataset or index, the operation and
+ * the service method making the call. Sizes of the responses (triples, rows, documents) are recorded to
+ * histograms tagged with the dataset or index and the operation. Calls are also added to the
+ * {@link RequestCallTrace} of the current request.
+ */
+@Component
+public class BackendMetricsPostProcessor implements BeanPostProcessor {
+
+    private static final Set<String> REPOSITORY_OPERATIONS = Set.of("fetch", "put", "queryConstruct",
+            "querySelect", "queryAsk", "queryUpdate", "graphExists", "resourceExistsInGraph");
+
+    private static final Set<String> OPEN_SEARCH_OPERATIONS = Set.of("search", "bulkInsert",
+            "putToIndex", "updateToIndex");
+
+    private static final String APPLICATION_PACKAGE = "fi.vm.yti.datamodel.api";
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    // resolved lazily, bean post processors are created before the meter registry
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public BackendMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof BaseRepository) {
+            var dataset = beanName.replace("Repository", "");
+            return createProxy(bean, invocation -> invokeRepository(invocation, dataset));
+        } else if (bean instanceof OpenSearchClientWrapper) {
+            return createProxy(bean, this::invokeOpenSearch);
+        }
+        return bean;
+    }
+
+    private static Object createProxy(Object bean, MethodInterceptor interceptor) {
+        var factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private Object invokeRepository(MethodInvocation invocation, String dataset) throws Throwable {
+        var operation = invocation.getMethod().getName();
+        if (!REPOSITORY_OPERATIONS.contains(operation)) {
+            return invocation.proceed();
+        }
+
+        var args = invocation.getArguments();
+        var rows = new AtomicLong();
+        if (operation.equals("querySelect") && args.length > 1 && args[1] instanceof Consumer) {
+            @SuppressWarnings("unchecked")
+            var consumer = (Consumer<QuerySolution>) args[1];
+            args[1] = (Consumer<QuerySolution>) row -> {
+                rows.incrementAndGet();
+                consumer.accept(row);
+            };
+        }
+
+        var result = record("fuseki", "dataset", dataset, operation, invocation);
+
+        if (result instanceof Model model) {
+            recordSize("fuseki.triples", "dataset", dataset, operation, model.size());
+        } else if (operation.equals("put") && args.length > 1 && args[1] instanceof Model model) {
+            recordSize("fuseki.triples", "dataset", dataset, operation, model.size());
+        } else if (operation.equals("querySelect")) {
+            recordSize("fuseki.rows", "dataset", dataset, operation, rows.get());
+        }
+        return result;
+    }
+
+    private Object invokeOpenSearch(MethodInvocation invocation) throws Throwable {
+        var operation = invocation.getMethod().getName();
+        if (!OPEN_SEARCH_OPERATIONS.contains(operation)) {
+            return invocation.proceed();
+        }
+
+        var args = invocation.getArguments();
+        var index = getIndex(args);
+        var result = record("opensearch", "index", index, operation, invocation);
+
+        if (result instanceof SearchResponseDTO<?> response && response.getResponseObjects() != null) {
+            recordSize("opensearch.documents", "index", index, operation, response.getResponseObjects().size());
+        } else if (args.length > 1 && args[1] instanceof Collection<?> documents) {
+            recordSize("opensearch.documents", "index", index, operation, documents.size());
+        } else if (args.length > 1 && args[1] != null) {
+            recordSize("opensearch.documents", "index", index, operation, 1);
+        }
+        return result;
+    }
+
+    private Object record(String backend, String targetTag, String target, String operation,
+                          MethodInvocation invocation) throws Throwable {
+        var registry = meterRegistry.getIfAvailable();
+        var caller = registry != null ? getCaller() : null;
+        var exception = "none";
+        var start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            var duration = System.nanoTime() - start;
+            if (registry != null) {
+                Timer.builder(backend + ".requests")
+                        .tag(targetTag, target)
+                        .tag("operation", operation)
+                        .tag("caller", caller)
+                        .tag("exception", exception)
+                        .register(registry)
+                        .record(duration, TimeUnit.NANOSECONDS);
+            }
+            RequestCallTrace.record(backend, target + "." + operation, invocation.getArguments(), duration);
+        }
+    }
+
+    private void recordSize(String name, String targetTag, String target, String operation, long size) {
+        var registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        DistributionSummary.builder(name)
+                .tag(targetTag, target)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(size);
+    }
+
+    private static String getIndex(Object[] args) {
+        if (args.length == 0) {
+            return "unknown";
+        } else if (args[0] instanceof String index) {
+            return index;
+        } else if (args[0] instanceof SearchRequest request) {
+            return String.join(",", request.index());
+        }
+        return "unknown";
+    }
+
+    /**
+     * Find the first application method in the call stack outside repositories and this class,
+     * e.g. DataModelService.get
+     */
+    static String getCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !f.getClassName().contains("$$")
+                        && !f.getClassName().equals(BackendMetricsPostProcessor.class.getName())
+                        && !f.getClassName().contains(".repository."))
+                .findFirst()
+                .map(f -> getSimpleName(f.getClassName()) + "." + getMethodName(f.getMethodName()))
+                .orElse("unknown"));
+    }
+
+    private static String getSimpleName(String className) {
+        var name = className.substring(className.lastIndexOf('.') + 1);
+        var nested = name.indexOf('$');
+        return nested > 0 ? name.substring(0, nested) : name;
+    }
+
+    // lambdas are named e.g. lambda$reindex$3
+    private static String getMethodName(String methodName) {
+        if (methodName.startsWith("lambda$")) {
+            var name = methodName.substring("lambda$".length());
+            var end = name.indexOf('$');
+            return end > 0 ? name.substring(0, end) : name;
+        }
+        return methodName;
+    }
+}
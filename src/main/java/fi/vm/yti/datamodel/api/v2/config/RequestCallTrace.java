@@ -0,0 +1,146 @@
+package fi.vm.yti.datamodel.api.v2.config;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.rdf.model.Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Backend calls made while handling one HTTP request. The trace is bound to the request thread, calls made
+ * in other threads (e.g. parallel indexing, release jobs) are not included.
+ */
+public class RequestCallTrace {
+
+    private static final ThreadLocal<RequestCallTrace> CURRENT = new ThreadLocal<>();
+
+    // longer strings (e.g. query strings) are replaced with a hash in the keys
+    private static final int MAX_STRING_LENGTH = 200;
+
+    private final long started = System.nanoTime();
+
+    // calls and total duration by backend (fuseki, opensearch)
+    private final Map<String, long[]> backends = new LinkedHashMap<>();
+
+    // operation and arguments of the calls, used for finding repeated identical queries
+    private final List<Call> calls = new ArrayList<>();
+
+    public static RequestCallTrace start() {
+        var trace = new RequestCallTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return trace of the current request, null if calls are not traced in this thread
+     */
+    public static RequestCallTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Add backend call to the trace of the current request, if there is one
+     * @param backend backend, e.g. fuseki
+     * @param operation operation including dataset or index, e.g. core.fetch
+     * @param args arguments of the call, callbacks and payloads are left out
+     * @param nanos duration of the call
+     */
+    public static void record(String backend, String operation, Object[] args, long nanos) {
+        var trace = CURRENT.get();
+        if (trace != null) {
+            var queryArgs = Arrays.stream(args)
+                    .filter(arg -> !(arg instanceof Consumer || arg instanceof Model
+                            || arg instanceof Collection || arg instanceof Class))
+                    .toArray();
+            trace.add(backend, new Call(operation, queryArgs), nanos);
+        }
+    }
+
+    private synchronized void add(String backend, Call call, long nanos) {
+        var totals = backends.computeIfAbsent(backend, b -> new long[2]);
+        totals[0]++;
+        totals[1] += nanos;
+        calls.add(call);
+    }
+
+    public synchronized int getCalls() {
+        return (int) backends.values().stream().mapToLong(totals -> totals[0]).sum();
+    }
+
+    public synchronized long getBackendMillis() {
+        return backends.values().stream().mapToLong(totals -> totals[1]).sum() / 1_000_000;
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    /**
+     * Keys are built from the arguments only here, so call this only when the calls are logged
+     * @return identical calls made more than once, with the number of calls
+     */
+    public synchronized Map<String, Integer> getRepeatedCalls() {
+        var counts = new LinkedHashMap<String, Integer>();
+        calls.forEach(call -> counts.merge(call.getKey(), 1, Integer::sum));
+        counts.values().removeIf(count -> count < 2);
+        return counts;
+    }
+
+    /**
+     * @return value for Server-Timing header, e.g. fuseki;dur=12.5;desc="4 calls"
+     */
+    public synchronized String getServerTiming() {
+        return backends.entrySet().stream()
+                .map(e -> String.format(Locale.ROOT, "%s;dur=%.1f;desc=\"%d calls\"",
+                        e.getKey(), e.getValue()[1] / 1e6, e.getValue()[0]))
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @return summary of the calls for logging, e.g. calls=5 fuseki=4/12ms opensearch=1/3ms
+     */
+    public synchronized String getSummary() {
+        var summary = new StringBuilder()
+                .append("calls=").append(getCalls())
+                .append(" backendTime=").append(getBackendMillis()).append("ms")
+                .append(" elapsed=").append(getElapsedMillis()).append("ms");
+        backends.forEach((backend, totals) -> summary.append(' ')
+                .append(backend).append('=').append(totals[0])
+                .append('/').append(totals[1] / 1_000_000).append("ms"));
+        return summary.toString();
+    }
+
+    private record Call(String operation, Object[] args) {
+
+        /**
+         * Operation with the arguments, e.g. core.fetch https://iri.suomi.fi/model/test/. SPARQL queries are
+         * not serialized, they are identified by the query type and the hash code of the query. Other large
+         * arguments (e.g. search requests) are replaced with a hash of their string form.
+         */
+        String getKey() {
+            return Arrays.stream(args)
+                    .map(Call::describe)
+                    .collect(Collectors.joining(" ", operation + " ", ""));
+        }
+
+        private static String describe(Object arg) {
+            if (arg == null || (arg instanceof String s && s.length() <= MAX_STRING_LENGTH)) {
+                return String.valueOf(arg);
+            } else if (arg instanceof Query query) {
+                return query.queryType() + "#" + Integer.toHexString(query.hashCode());
+            }
+            return arg.getClass().getSimpleName() + "#" + Integer.toHexString(arg.toString().hashCode());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package fi.vm.yti.datamodel.api.v2.config;
+
+import fi.vm.yti.security.AuthenticatedUserProvider;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Counts and times Fuseki and OpenSearch calls made while handling a request (see {@link RequestCallTrace}).
+ * If enabled, totals are returned to superusers in Server-Timing header. Requests exceeding the call count or
+ * time threshold are logged with the queries made more than once, which usually means an N+1 query pattern.
+ */
+@Component
+public class RequestCallTraceFilter extends OncePerRequestFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestCallTraceFilter.class);
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final int callThreshold;
+    private final long timeThreshold;
+    private final boolean serverTimingEnabled;
+    private final AuthenticatedUserProvider userProvider;
+
+    public RequestCallTraceFilter(@Value("${trace.backend.threshold.calls:50}") int callThreshold,
+                                  @Value("${trace.backend.threshold.time:2000}") long timeThreshold,
+                                  @Value("${trace.backend.serverTiming:false}") boolean serverTimingEnabled,
+                                  AuthenticatedUserProvider userProvider) {
+        this.callThreshold = callThreshold;
+        this.timeThreshold = timeThreshold;
+        this.serverTimingEnabled = serverTimingEnabled;
+        this.userProvider = userProvider;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var trace = RequestCallTrace.start();
+        // timings reveal details of the backend, so they are shown only to superusers
+        var serverTiming = serverTimingEnabled && userProvider.getUser().isSuperuser();
+        // headers can't be added after the response is committed
+        HttpServletResponse wrapper = !serverTiming ? response : new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                addServerTiming(response, trace);
+            }
+        };
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (serverTiming && !response.isCommitted()) {
+                addServerTiming(response, trace);
+            }
+        } finally {
+            RequestCallTrace.end();
+            logSummary(request, trace);
+        }
+    }
+
+    private void addServerTiming(HttpServletResponse response, RequestCallTrace trace) {
+        if (trace.getCalls() > 0 && !response.containsHeader(SERVER_TIMING)) {
+            response.setHeader(SERVER_TIMING, trace.getServerTiming());
+        }
+    }
+
+    private void logSummary(HttpServletRequest request, RequestCallTrace trace) {
+        // keys of the calls are built only for the requests exceeding the threshold
+        if (trace.getCalls() > callThreshold || trace.getBackendMillis() > timeThreshold) {
+            LOG.warn("Backend calls exceeded threshold: method={} uri={} {} repeated={}",
+                    request.getMethod(), request.getRequestURI(), trace.getSummary(), trace.getRepeatedCalls());
+        } else if (LOG.isDebugEnabled()) {
+            LOG.debug("Backend calls: method={} uri={} {}",
+                    request.getMethod(), request.getRequestURI(), trace.getSummary());
+        }
+    }
+}
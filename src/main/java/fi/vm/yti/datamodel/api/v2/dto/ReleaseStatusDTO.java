@@ -0,0 +1,73 @@
+package fi.vm.yti.datamodel.api.v2.dto;
+
+import java.util.Date;
+import java.util.Map;
+
+public class ReleaseStatusDTO {
+
+    public enum JobStatus { PENDING, RUNNING, DONE, FAILED }
+
+    private String prefix;
+    private String version;
+    private JobStatus status;
+    private Map<String, JobStatus> stages;
+    private Map<String, String> errors;
+    private Date started;
+    private Date finished;
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public Map<String, JobStatus> getStages() {
+        return stages;
+    }
+
+    public void setStages(Map<String, JobStatus> stages) {
+        this.stages = stages;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public void setStarted(Date started) {
+        this.started = started;
+    }
+
+    public Date getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Date finished) {
+        this.finished = finished;
+    }
+}
@@ -157,6 +157,17 @@ public class DataModelController {
         return ResponseEntity.created(uri).build();
     }
 
+    @Operation(summary = "Get status of the background stages of a release (indexing, reference updates, exports, notification)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Release status found"),
+            @ApiResponse(responseCode = "404", description = "No release job found for the version", content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class))}),
+    })
+    @GetMapping(value = "/{prefix}/release/status", produces = APPLICATION_JSON_VALUE)
+    public ReleaseStatusDTO getReleaseStatus(@PathVariable @Parameter(description = "Data model prefix") String prefix,
+                                             @RequestParam @Parameter(description = "Semantic version") @ValidSemanticVersion String version) {
+        return dataModelService.getReleaseStatus(prefix, version);
+    }
+
     @Operation(summary = "Get version information of a model")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Prior versions found"),
@@ -13,6 +13,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
@@ -31,15 +32,17 @@ public class ExportController {
     @Operation(summary = "Get a data model or a single resource serialized")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Get and serialize resource successfully"),
+            @ApiResponse(responseCode = "304", description = "Published version not modified (If-None-Match)"),
             @ApiResponse(responseCode = "404", description = "Model or Resource not found", content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class))})
     })
     @GetMapping(value = {"{prefix}", "/{prefix}/{resourceIdentifier}"},
-            produces = {"application/ld+json;charset=utf-8", "text/turtle;charset=utf-8", "application/rdf+xml;charset=utf-8", "application/vnd+oai+openapi+json;charset=utf-8", "application/schema+json"})
-    public ResponseEntity<String> export(@PathVariable @Parameter(description = "Data model prefix") String prefix,
+            produces = {"application/ld+json;charset=utf-8", "text/turtle;charset=utf-8", "application/rdf+xml;charset=utf-8", "application/n-triples;charset=utf-8", "application/vnd+oai+openapi+json;charset=utf-8", "application/schema+json"})
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable @Parameter(description = "Data model prefix") String prefix,
                                          @RequestParam(required = false) @Parameter(description = "Version") @ValidSemanticVersion String version,
                                          @RequestParam(required = false) @Parameter(description = "Content type") String contentType,
                                          @RequestParam(required = false) @Parameter(description = "Content language") String language,
-                                         @RequestHeader(value = HttpHeaders.ACCEPT) String accept){
+                                         @RequestHeader(value = HttpHeaders.ACCEPT) String accept,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
         var showAsFile = false;
         var type = accept;
 
@@ -47,6 +50,6 @@ public class ExportController {
             type = URLDecoder.decode(contentType, StandardCharsets.UTF_8);
             showAsFile = true;
         }
-        return dataModelService.export(prefix, version, type, showAsFile, language);
+        return dataModelService.export(prefix, version, type, showAsFile, language, ifNoneMatch);
     }
 }
@@ -0,0 +1,28 @@
+package fi.vm.yti.datamodel.api.v2.health;
+
+import fi.vm.yti.datamodel.api.v2.StartUpListener;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports status of the startup steps run in the background. The steps are not required
+ * for serving requests, so the status is UP even if they are still running or have failed.
+ */
+@Component
+@ConditionalOnProperty(name = "health.startup.enabled", havingValue = "true", matchIfMissing = true)
+public class StartupHealthChecker implements HealthIndicator {
+    private final StartUpListener startUpListener;
+
+    public StartupHealthChecker(StartUpListener startUpListener) {
+        this.startUpListener = startUpListener;
+    }
+
+    @Override
+    public Health health() {
+        var builder = Health.up();
+        startUpListener.getBackgroundStatus().forEach((step, status) -> builder.withDetail(step, status.name()));
+        return builder.build();
+    }
+}
@@ -17,6 +17,7 @@ import fi.vm.yti.datamodel.api.v2.properties.DCAP;
 import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
 import fi.vm.yti.datamodel.api.v2.repository.SchemesRepository;
+import fi.vm.yti.datamodel.api.v2.service.GraphCatalogService;
 import fi.vm.yti.datamodel.api.v2.service.TerminologyService;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import fi.vm.yti.security.YtiUser;
@@ -38,16 +39,19 @@ public class ModelMapper {
     private final ImportsRepository importsRepository;
     private final SchemesRepository schemesRepository;
     private final TerminologyService terminologyService;
+    private final GraphCatalogService graphCatalogService;
 
 
     public ModelMapper (CoreRepository coreRepository,
                         ImportsRepository importsRepository,
                         SchemesRepository schemesRepository,
-                        TerminologyService terminologyService){
+                        TerminologyService terminologyService,
+                        GraphCatalogService graphCatalogService){
         this.coreRepository = coreRepository;
         this.importsRepository = importsRepository;
         this.schemesRepository = schemesRepository;
         this.terminologyService = terminologyService;
+        this.graphCatalogService = graphCatalogService;
     }
 
     /**
@@ -357,11 +361,10 @@ public class ModelMapper {
             if(ns.startsWith(Constants.DATA_MODEL_NAMESPACE)){
                 var dto = new InternalNamespaceDTO();
                 try {
-                    var nsModel = coreRepository.fetch(ns);
-                    var nsResource = DataModelMapperUtils.getModelResourceFromVersion(nsModel);
+                    var nsMetadata = graphCatalogService.get(ns);
                     dto.setNamespace(ns);
-                    dto.setPrefix(MapperUtils.propertyToString(nsResource, DCAP.preferredXMLNamespacePrefix));
-                    dto.setName(MapperUtils.localizedPropertyToMap(nsResource, RDFS.label));
+                    dto.setPrefix(nsMetadata.prefix());
+                    dto.setName(nsMetadata.label());
                 } catch (Exception e) {
                     dto.setNamespace(ns);
                 }
@@ -384,9 +387,7 @@ public class ModelMapper {
      */
     private void addInternalNamespaceToDatamodel(DataModelDTO modelDTO, Resource resource) {
         modelDTO.getInternalNamespaces().forEach(namespace -> {
-            var ns = coreRepository.fetch(namespace);
-            var nsRes = DataModelMapperUtils.getModelResourceFromVersion(ns);
-            var nsType = DataModelMapperUtils.getModelTypeFromResource(nsRes);
+            var nsType = graphCatalogService.get(namespace).type();
             var modelType = DataModelMapperUtils.getModelTypeFromResource(resource);
             resource.addProperty(getNamespacePropertyFromType(modelType, nsType), ResourceFactory.createResource(namespace));
         });
@@ -595,6 +595,7 @@ public class V1DataMigrationService {
         try {
             var version = "1.0.0";
             dataModelService.createRelease(prefix, version, Status.VALID);
+            dataModelService.awaitRelease(prefix, version);
             var uri = DataModelURI.Factory.createModelURI(prefix).getGraphURI();
             dataModelService.updateDraftReferences(uri, version);
         } catch (Exception e) {
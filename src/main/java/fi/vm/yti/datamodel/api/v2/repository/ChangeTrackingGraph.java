@@ -0,0 +1,147 @@
+package fi.vm.yti.datamodel.api.v2.repository;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.modify.request.QuadDataAcc;
+import org.apache.jena.sparql.modify.request.UpdateDataDelete;
+import org.apache.jena.sparql.modify.request.UpdateDataInsert;
+import org.apache.jena.update.UpdateRequest;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Graph wrapper that records statements added to and removed from the wrapped graph.
+ * Used for writing only the changed triples to Fuseki instead of replacing the whole graph.
+ * If the wrapped graph is shared (e.g. cached), it is copied before the first change.
+ */
+public class ChangeTrackingGraph extends GraphBase {
+
+    private final String graphName;
+    private final Graph additions = GraphFactory.createGraphMem();
+    private final Graph deletions = GraphFactory.createGraphMem();
+    private Graph base;
+    private boolean shared;
+
+    public ChangeTrackingGraph(String graphName, Graph base) {
+        this(graphName, base, false);
+    }
+
+    public ChangeTrackingGraph(String graphName, Graph base, boolean shared) {
+        this.graphName = graphName;
+        this.base = base;
+        this.shared = shared;
+    }
+
+    public String getGraphName() {
+        return graphName;
+    }
+
+    public boolean hasChanges() {
+        return !additions.isEmpty() || !deletions.isEmpty();
+    }
+
+    public int getChangeCount() {
+        return additions.size() + deletions.size();
+    }
+
+    /**
+     * Blank nodes cannot be matched with DELETE DATA and would get new labels with INSERT DATA,
+     * so changes including them have to be written by replacing the whole graph
+     */
+    public boolean hasBlankNodeChanges() {
+        return containsBlankNodes(additions) || containsBlankNodes(deletions);
+    }
+
+    /**
+     * Build single request containing DELETE DATA and INSERT DATA operations for the recorded changes
+     * @return update request
+     */
+    public UpdateRequest toUpdateRequest() {
+        var graphNode = NodeFactory.createURI(graphName);
+        var request = new UpdateRequest();
+        if (!deletions.isEmpty()) {
+            var quads = new QuadDataAcc();
+            deletions.find().forEach(t -> quads.addQuad(new Quad(graphNode, t)));
+            request.add(new UpdateDataDelete(quads));
+        }
+        if (!additions.isEmpty()) {
+            var quads = new QuadDataAcc();
+            additions.find().forEach(t -> quads.addQuad(new Quad(graphNode, t)));
+            request.add(new UpdateDataInsert(quads));
+        }
+        return request;
+    }
+
+    /**
+     * Clear recorded changes, called after the changes are persisted
+     */
+    public void resetChanges() {
+        additions.clear();
+        deletions.clear();
+    }
+
+    @Override
+    public void performAdd(Triple t) {
+        ensurePrivateCopy();
+        if (deletions.contains(t)) {
+            deletions.delete(t);
+        } else if (!base.contains(t)) {
+            additions.add(t);
+        }
+        base.add(t);
+    }
+
+    @Override
+    public void performDelete(Triple t) {
+        ensurePrivateCopy();
+        if (additions.contains(t)) {
+            additions.delete(t);
+        } else if (base.contains(t)) {
+            deletions.add(t);
+        }
+        base.delete(t);
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+        return base.find(triplePattern);
+    }
+
+    @Override
+    protected boolean graphBaseContains(Triple t) {
+        return base.contains(t);
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return base.size();
+    }
+
+    @Override
+    protected PrefixMapping createPrefixMapping() {
+        if (shared) {
+            return new PrefixMappingImpl().setNsPrefixes(base.getPrefixMapping());
+        }
+        return base.getPrefixMapping();
+    }
+
+    private void ensurePrivateCopy() {
+        if (shared) {
+            var copy = GraphFactory.createGraphMem();
+            GraphUtil.addInto(copy, base);
+            copy.getPrefixMapping().setNsPrefixes(base.getPrefixMapping());
+            base = copy;
+            shared = false;
+        }
+    }
+
+    private static boolean containsBlankNodes(Graph graph) {
+        return graph.find().filterKeep(t -> t.getSubject().isBlank() || t.getObject().isBlank()).hasNext();
+    }
+}
@@ -2,15 +2,26 @@ package fi.vm.yti.datamodel.api.v2.repository;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import fi.vm.yti.common.Constants;
+import fi.vm.yti.common.exception.ResourceNotFoundException;
 import fi.vm.yti.common.repository.BaseRepository;
 import fi.vm.yti.datamodel.api.v2.dto.ModelConstants;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import org.apache.jena.arq.querybuilder.AskBuilder;
 import org.apache.jena.arq.querybuilder.ConstructBuilder;
 import org.apache.jena.arq.querybuilder.ExprFactory;
 import org.apache.jena.arq.querybuilder.WhereBuilder;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdfconnection.RDFConnection;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.sparql.vocabulary.FOAF;
+import org.apache.jena.update.UpdateRequest;
+import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 import org.apache.jena.vocabulary.SKOS;
@@ -19,7 +30,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Repository
 public class CoreRepository extends BaseRepository {
@@ -28,8 +49,29 @@ public class CoreRepository extends BaseRepository {
 
     private final Cache<String, Model> modelCache;
 
+    /**
+     * Published versions are modified rarely after release (version metadata updates and references
+     * rewritten with queryUpdate), so they can be kept in the cache longer than drafts. Changes made by
+     * other instances are invalidated only locally, so entries expire after write. Weighted by triple count.
+     */
+    private final Cache<String, Graph> versionGraphCache;
+
+    /**
+     * Draft graphs are modified by other instances as well, so they are cached only if expiration is set.
+     */
+    private final Cache<String, Graph> draftGraphCache;
+
+    private final boolean deltaWritesEnabled;
+
+    private final List<Consumer<String>> graphChangeListeners = new CopyOnWriteArrayList<>();
+
     public CoreRepository(@Value(("${fuseki.url}")) String endpoint,
-                          @Value("${fuseki.cache.common.expiration:1800}") Long cacheExpireTime){
+                          @Value("${fuseki.cache.common.expiration:1800}") Long cacheExpireTime,
+                          @Value("${fuseki.cache.version.expiration:3600}") Long versionCacheExpireTime,
+                          @Value("${fuseki.cache.version.maxTriples:2000000}") Long versionCacheMaxTriples,
+                          @Value("${fuseki.cache.draft.expiration:0}") Long draftCacheExpireTime,
+                          @Value("${fuseki.cache.draft.maxTriples:500000}") Long draftCacheMaxTriples,
+                          @Value("${fuseki.delta.enabled:true}") boolean deltaWritesEnabled){
         super(RDFConnection.connect(endpoint + "/core/get"),
               RDFConnection.connect(endpoint + "/core/data"),
               RDFConnection.connect(endpoint + "/core/sparql"),
@@ -39,11 +81,217 @@ public class CoreRepository extends BaseRepository {
                 .expireAfterWrite(cacheExpireTime, TimeUnit.SECONDS)
                 .maximumSize(1000)
                 .build();
+        this.versionGraphCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(versionCacheExpireTime, TimeUnit.SECONDS)
+                .maximumWeight(versionCacheMaxTriples)
+                .weigher((String graph, Graph g) -> weighGraph(g))
+                .build();
+
+        if (draftCacheExpireTime > 0) {
+            this.draftGraphCache = CacheBuilder.newBuilder()
+                    .expireAfterWrite(draftCacheExpireTime, TimeUnit.SECONDS)
+                    .maximumWeight(draftCacheMaxTriples)
+                    .weigher((String graph, Graph g) -> weighGraph(g))
+                    .build();
+        } else {
+            this.draftGraphCache = null;
+        }
+        this.deltaWritesEnabled = deltaWritesEnabled;
+    }
+
+    /**
+     * Fetch graph and track changes made to it, so that only the changed triples are written back in put.
+     * Data model graphs are served from the cache. The cached graph is shared between readers and
+     * copied before the first change.
+     * @param graph graph uri
+     * @return model
+     */
+    @Override
+    public Model fetch(String graph) {
+        var cache = getGraphCache(graph);
+        if (cache != null) {
+            return ModelFactory.createModelForGraph(new ChangeTrackingGraph(graph, getCachedGraph(cache, graph), true));
+        }
+
+        var model = super.fetch(graph);
+        if (!deltaWritesEnabled || model == null) {
+            return model;
+        }
+        return ModelFactory.createModelForGraph(new ChangeTrackingGraph(graph, model.getGraph()));
     }
 
+    /**
+     * Write model to the graph. If the model was fetched from the same graph, changes are written with
+     * a single DELETE DATA / INSERT DATA request. Otherwise, or if the changes cannot be expressed as
+     * a patch (blank nodes, large changes), the whole graph is replaced.
+     * @param graph graph uri
+     * @param model model
+     */
+    @Override
+    public void put(String graph, Model model) {
+        if (model.getGraph() instanceof ChangeTrackingGraph trackingGraph
+                && graph.equals(trackingGraph.getGraphName())) {
+            if (!trackingGraph.hasChanges()) {
+                logger.debug("No changes to graph {}", graph);
+                return;
+            }
+            if (deltaWritesEnabled
+                    && !trackingGraph.hasBlankNodeChanges()
+                    && trackingGraph.getChangeCount() < trackingGraph.size()) {
+                logger.debug("Writing {} changed triples to graph {}", trackingGraph.getChangeCount(), graph);
+                super.queryUpdate(trackingGraph.toUpdateRequest());
+            } else {
+                super.put(graph, model);
+            }
+            trackingGraph.resetChanges();
+        } else {
+            super.put(graph, model);
+        }
+        invalidateGraph(graph);
+    }
+
+    @Override
+    public void delete(String graph) {
+        super.delete(graph);
+        invalidateGraph(graph);
+    }
+
+    @Override
+    public void deleteResource(String resource) {
+        super.deleteResource(resource);
+        invalidateGraphs(NodeFactory.createURI(resource).getNameSpace());
+    }
+
+    /**
+     * Update queries may modify any graph, so all cached graphs are invalidated
+     */
+    @Override
+    public void queryUpdate(String query) {
+        super.queryUpdate(query);
+        invalidateGraphs("");
+    }
+
+    @Override
+    public void queryUpdate(UpdateRequest request) {
+        super.queryUpdate(request);
+        invalidateGraphs("");
+    }
+
+    /**
+     * Run update query that modifies only the given graph, so other cached graphs are kept
+     * @param graph graph modified by the update
+     * @param request update request
+     */
+    public void queryUpdate(String graph, UpdateRequest request) {
+        super.queryUpdate(request);
+        invalidateGraph(graph);
+    }
+
+    /**
+     * Register listener to be notified after graphs are modified. Listener is called with the graph uri,
+     * or with a namespace if multiple graphs may have been modified (empty string if any graph may have been modified).
+     * Used for invalidating caches of data derived from the graphs.
+     * @param listener listener
+     */
+    public void addGraphChangeListener(Consumer<String> listener) {
+        graphChangeListeners.add(listener);
+    }
+
+    private Cache<String, Graph> getGraphCache(String graph) {
+        if (graph == null || !graph.startsWith(Constants.DATA_MODEL_NAMESPACE)) {
+            return null;
+        }
+        return DataModelURI.Factory.fromURI(graph).getVersion() != null
+                ? versionGraphCache
+                : draftGraphCache;
+    }
+
+    private Graph getCachedGraph(Cache<String, Graph> cache, String graph) {
+        try {
+            return cache.get(graph, () -> {
+                var model = super.fetch(graph);
+                if (model == null) {
+                    throw new ResourceNotFoundException(graph);
+                }
+                logger.debug("Fetched graph {} to cache, {} triples", graph, model.size());
+                return model.getGraph();
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Error fetching graph " + graph, e.getCause());
+        }
+    }
+
+    private void invalidateGraph(String graph) {
+        versionGraphCache.invalidate(graph);
+        if (draftGraphCache != null) {
+            draftGraphCache.invalidate(graph);
+        }
+        notifyGraphChange(graph);
+    }
+
+    /**
+     * Invalidate all cached versions of graphs starting with the given namespace
+     * @param namespace graph namespace, empty string invalidates all
+     */
+    private void invalidateGraphs(String namespace) {
+        versionGraphCache.asMap().keySet().removeIf(g -> g.startsWith(namespace));
+        if (draftGraphCache != null) {
+            draftGraphCache.asMap().keySet().removeIf(g -> g.startsWith(namespace));
+        }
+        notifyGraphChange(namespace);
+    }
+
+    private void notifyGraphChange(String graph) {
+        graphChangeListeners.forEach(listener -> {
+            try {
+                listener.accept(graph);
+            } catch (Exception e) {
+                logger.warn("Error handling change of graph {}", graph, e);
+            }
+        });
+    }
+
+    private static int weighGraph(Graph g) {
+        return Math.max(1, g.size());
+    }
+
+    /**
+     * Store service categories from ptvl-skos.rdf to Fuseki. Checksum of the file is stored to the graph,
+     * so the categories are written only if the file has changed.
+     */
     public void initServiceCategories() {
-        var model = RDFDataMgr.loadModel("ptvl-skos.rdf");
+        byte[] content;
+        String checksum;
+        try (var in = CoreRepository.class.getClassLoader().getResourceAsStream("ptvl-skos.rdf")) {
+            if (in == null) {
+                throw new IllegalStateException("ptvl-skos.rdf not found");
+            }
+            content = in.readAllBytes();
+            checksum = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        var graph = NodeFactory.createURI(ModelConstants.SERVICE_CATEGORY_GRAPH);
+        var ask = new AskBuilder()
+                .addGraph(graph, graph, OWL.versionInfo, NodeFactory.createLiteral(checksum));
+        if (queryAsk(ask.build())) {
+            logger.info("Service categories unchanged, skipping initialization");
+            return;
+        }
+
+        var model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, new ByteArrayInputStream(content), Lang.RDFXML);
+        model.createResource(ModelConstants.SERVICE_CATEGORY_GRAPH)
+                .addProperty(OWL.versionInfo, checksum);
         put(ModelConstants.SERVICE_CATEGORY_GRAPH, model);
+        modelCache.invalidate("serviceCategories");
+        logger.info("Service categories initialized");
     }
 
     public Model getOrganizations(){
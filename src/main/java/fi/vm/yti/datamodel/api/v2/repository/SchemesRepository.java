@@ -3,11 +3,18 @@ package fi.vm.yti.datamodel.api.v2.repository;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import fi.vm.yti.common.repository.BaseRepository;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdfconnection.RDFConnection;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.modify.request.QuadDataAcc;
+import org.apache.jena.sparql.modify.request.UpdateDataInsert;
+import org.apache.jena.sparql.modify.request.UpdateDrop;
+import org.apache.jena.update.UpdateRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Repository
@@ -38,4 +45,21 @@ public class SchemesRepository extends BaseRepository {
             return null;
         }
     }
+
+    /**
+     * Replace multiple graphs with a single update request
+     * @param models models by graph URI
+     */
+    public void putAll(Map<String, Model> models) {
+        var request = new UpdateRequest();
+        models.forEach((graph, model) -> {
+            var graphNode = NodeFactory.createURI(graph);
+            var quads = new QuadDataAcc();
+            model.getGraph().find().forEach(t -> quads.addQuad(new Quad(graphNode, t)));
+            request.add(new UpdateDrop(graphNode, true));
+            request.add(new UpdateDataInsert(quads));
+        });
+        queryUpdate(request);
+        modelCache.invalidateAll(models.keySet());
+    }
 }
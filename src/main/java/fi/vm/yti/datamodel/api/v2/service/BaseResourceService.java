@@ -1,5 +1,6 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
+import com.google.common.collect.Lists;
 import fi.vm.yti.common.Constants;
 import fi.vm.yti.common.exception.JenaQueryException;
 import fi.vm.yti.common.exception.MappingError;
@@ -42,6 +43,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -50,6 +52,11 @@ import static fi.vm.yti.security.AuthorizationException.check;
 abstract class BaseResourceService {
 
     private static final Logger LOG = LoggerFactory.getLogger(BaseResourceService.class);
+
+    // TODO: resource type specific list of properties?
+    private static final List<Property> FIND_RESOURCE_PREDICATES = List.of(RDFS.isDefinedBy, DCTerms.identifier, RDF.type, RDFS.label,
+            RDFS.range, DCTerms.subject, SH.path, SH.datatype, SH.minCount, SH.maxCount, SH.property);
+    private static final int FIND_RESOURCES_BATCH_SIZE = 100;
     private final AuditService auditService;
 
     private final CoreRepository coreRepository;
@@ -57,19 +64,22 @@ abstract class BaseResourceService {
     private final DataModelAuthorizationManager authorizationManager;
     private final AuthenticatedUserProvider userProvider;
     private final IndexService indexService;
+    private final BatchQueryExecutor batchQueryExecutor;
 
     BaseResourceService(CoreRepository coreRepository,
                         ImportsRepository importsRepository,
                         DataModelAuthorizationManager authorizationManager,
                         IndexService indexService,
                         AuditService auditService,
-                        AuthenticatedUserProvider userProvider) {
+                        AuthenticatedUserProvider userProvider,
+                        BatchQueryExecutor batchQueryExecutor) {
         this.coreRepository = coreRepository;
         this.importsRepository = importsRepository;
         this.authorizationManager = authorizationManager;
         this.indexService = indexService;
         this.auditService = auditService;
         this.userProvider = userProvider;
+        this.batchQueryExecutor = batchQueryExecutor;
     }
 
     public void delete(String prefix, String resourceIdentifier) {
@@ -83,7 +93,14 @@ abstract class BaseResourceService {
         var model = coreRepository.fetch(graphUri);
         check(authorizationManager.hasRightToModel(prefix, model));
 
-        var references = getResourceReferences(resourceUri, true);
+        // check from the model first, references are queried only if other resources refer to the resource
+        var resource = model.getResource(resourceUri);
+        var referred = model.listStatements(null, null, resource)
+                .filterDrop(s -> s.getSubject().equals(resource))
+                .hasNext();
+        var references = referred
+                ? getResourceReferences(resourceUri, true)
+                : new HashMap<ResourceType, List<ResourceReferenceDTO>>();
 
         // If the references include the resource being deleted, remove it so it won't prevent deletion
         references.forEach((type, refs) -> {
@@ -190,10 +207,6 @@ abstract class BaseResourceService {
         var importsBuilder = new ConstructBuilder()
                 .addPrefixes(ModelConstants.PREFIXES);
 
-        // TODO: resource type specific list of properties?
-        var predicates = List.of(RDFS.isDefinedBy, DCTerms.identifier, RDF.type, RDFS.label,
-                RDFS.range, DCTerms.subject, SH.path, SH.datatype, SH.minCount, SH.maxCount, SH.property);
-
         var iterator = resourceURIs.iterator();
         var count = 0;
         while(iterator.hasNext()) {
@@ -204,7 +217,7 @@ abstract class BaseResourceService {
                 uri = DataModelUtils.removeVersionFromURI(uri);
             }
             var resource = ResourceFactory.createResource(uri);
-            for(var pred : predicates) {
+            for(var pred : FIND_RESOURCE_PREDICATES) {
                 var obj = "?" + pred.getLocalName() + count;
                 if(uri.startsWith(Constants.DATA_MODEL_NAMESPACE)) {
                     coreBuilder.addConstruct(resource, pred, obj);
@@ -232,6 +245,55 @@ abstract class BaseResourceService {
         return resultModel;
     }
 
+    /**
+     * Find the same properties of resources as findResources, but with VALUES queries in fixed size batches,
+     * which are executed in parallel. Use when resolving a large number of resources at once.
+     * Versioned resource URIs are returned without the version.
+     * @param resourceURIs resource URIs
+     * @param graphsIncluded graphs to search data model resources from
+     * @return model containing found resources
+     */
+    public Model findResourcesInBatches(Set<String> resourceURIs, Set<String> graphsIncluded) {
+        var resultModel = ModelFactory.createDefaultModel();
+        if (resourceURIs == null || resourceURIs.isEmpty()) {
+            return resultModel;
+        }
+
+        var coreURIs = resourceURIs.stream()
+                .filter(uri -> uri.startsWith(Constants.DATA_MODEL_NAMESPACE))
+                .map(DataModelUtils::removeVersionFromURI)
+                .distinct()
+                .toList();
+        var importsURIs = resourceURIs.stream()
+                .filter(uri -> !uri.startsWith(Constants.DATA_MODEL_NAMESPACE))
+                .toList();
+
+        var queries = new ArrayList<Supplier<Model>>();
+        Lists.partition(coreURIs, FIND_RESOURCES_BATCH_SIZE).forEach(batch -> {
+            var query = buildFindResourcesQuery(batch, graphsIncluded);
+            queries.add(() -> coreRepository.queryConstruct(query));
+        });
+        Lists.partition(importsURIs, FIND_RESOURCES_BATCH_SIZE).forEach(batch -> {
+            var query = buildFindResourcesQuery(batch, Set.of());
+            queries.add(() -> importsRepository.queryConstruct(query));
+        });
+
+        batchQueryExecutor.invokeAll(queries).forEach(resultModel::add);
+        return resultModel;
+    }
+
+    private static Query buildFindResourcesQuery(List<String> resourceURIs, Set<String> graphsIncluded) {
+        var builder = new ConstructBuilder()
+                .addPrefixes(ModelConstants.PREFIXES)
+                .addConstruct("?s", "?p", "?o")
+                .addWhere("?s", "?p", "?o")
+                .addValueVar("s", resourceURIs.stream().map(NodeFactory::createURI).toArray());
+        var exprFactory = builder.getExprFactory();
+        builder.addFilter(exprFactory.in("?p", FIND_RESOURCE_PREDICATES.stream().map(Property::asNode).toArray()));
+        graphsIncluded.forEach(builder::from);
+        return builder.build();
+    }
+
     public Consumer<Set<UriDTO>> mapUriLabels(Set<String> includedNamespaces) {
 
         return (var uriDtos) -> {
@@ -0,0 +1,61 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs the batches of a large lookup (e.g. resources of a visualization) in parallel. Batches are blocking
+ * Fuseki and OpenSearch calls, so they are run in a small dedicated pool instead of the common fork-join pool.
+ * The pool size limits the concurrent queries of all requests together.
+ */
+@Component
+public class BatchQueryExecutor {
+
+    private final ExecutorService executor;
+
+    public BatchQueryExecutor(@Value("${query.batch.threads:4}") Integer threads) {
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            var thread = new Thread(r, "batch-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Run the batches and wait for all of them to finish
+     * @param batches batch queries
+     * @return results in the same order as the batches
+     */
+    public <T> List<T> invokeAll(List<Supplier<T>> batches) {
+        // single batch is run in the calling thread
+        if (batches.size() == 1) {
+            return List.of(batches.get(0).get());
+        }
+        var futures = batches.stream()
+                .map(batch -> CompletableFuture.supplyAsync(batch, executor))
+                .toList();
+        try {
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
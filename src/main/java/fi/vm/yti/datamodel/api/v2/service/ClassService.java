@@ -68,8 +68,10 @@ public class ClassService extends BaseResourceService {
                         GroupManagementService groupManagementService,
                         IndexService indexService,
                         SearchIndexService searchIndexService,
-                        VisualizationService visualizationService) {
-        super(coreRepository, importsRepository, authorizationManager, indexService, AUDIT_SERVICE, userProvider);
+                        VisualizationService visualizationService,
+                        BatchQueryExecutor batchQueryExecutor) {
+        super(coreRepository, importsRepository, authorizationManager, indexService, AUDIT_SERVICE, userProvider,
+                batchQueryExecutor);
         this.coreRepository = coreRepository;
         this.importsRepository = importsRepository;
         this.authorizationManager = authorizationManager;
@@ -127,7 +129,9 @@ public class ClassService extends BaseResourceService {
             var uriResultExternal = searchIndexService.findResourcesByURI(restrictionExternalURIs, null);
 
             dto.setRemovedProperties(getNonExistingResources(restrictionExternalURIs, uriResultExternal.getResponseObjects()));
-            ClassMapper.addClassResourcesToDTO(model, restrictionInternalURIs, (ClassInfoDTO) dto, terminologyService.mapConceptToResource());
+            // concepts are mapped in a single batch after all restrictions are added
+            ClassMapper.addClassResourcesToDTO(model, restrictionInternalURIs, (ClassInfoDTO) dto, restriction -> {});
+            terminologyService.mapConceptsToResources(restrictionInternalURIs);
             ClassMapper.addClassResourcesToDTO(uriResultExternal.getResponseObjects(), restrictions, (ClassInfoDTO) dto);
         } else {
             dto = ClassMapper.mapToNodeShapeDTO(model, uri, orgModel, hasRightToModel, userMapper);
@@ -1,8 +1,11 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import fi.vm.yti.datamodel.api.v2.dto.CodeListDTO;
 import fi.vm.yti.datamodel.api.v2.mapper.CodeListMapper;
 import fi.vm.yti.datamodel.api.v2.repository.SchemesRepository;
+import org.apache.jena.rdf.model.Model;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -11,9 +14,13 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class CodeListService {
@@ -29,40 +36,70 @@ public class CodeListService {
     @Value("${env:}")
     private String awsEnv;
     private final WebClient client;
+    private final int concurrency;
+    private final Cache<String, Boolean> resolvedCodeLists;
 
     public CodeListService(
             SchemesRepository schemesRepository,
-            @Qualifier("uriResolveClient") WebClient webClient) {
+            @Qualifier("uriResolveClient") WebClient webClient,
+            @Value("${codelist.resolve.concurrency:4}") int concurrency,
+            @Value("${codelist.resolve.expiration:1800}") Long resolveExpireTime) {
         this.schemesRepository = schemesRepository;
         this.client = webClient;
+        this.concurrency = Math.max(1, concurrency);
+        this.resolvedCodeLists = CacheBuilder.newBuilder()
+                .expireAfterWrite(resolveExpireTime, TimeUnit.SECONDS)
+                .maximumSize(10000)
+                .build();
     }
 
     /**
-     * Fetch CodeList information and persist to Fuseki
+     * Fetch CodeList information and persist to Fuseki. Code lists are fetched concurrently
+     * and code lists resolved recently are skipped.
      * @param codeLists set of uris
      */
     public void resolveCodelistScheme(Collection<String> codeLists) {
-        codeLists.forEach(codeList -> {
-            var uri = URI.create(codeList);
-            LOG.debug("Fetching codelist {} from env {}", uri, awsEnv);
-            try {
-                var result = client.get().uri(builder -> builder
-                                .path(uri.getPath())
-                                .queryParam("env", awsEnv)
-                                .build())
-                        .accept(MediaType.APPLICATION_JSON)
-                        .retrieve()
-                        .bodyToMono(new ParameterizedTypeReference<CodeListDTO>() {})
-                        .block();
+        var unresolved = codeLists.stream()
+                .distinct()
+                .filter(codeList -> resolvedCodeLists.getIfPresent(codeList) == null)
+                .toList();
+        if (unresolved.isEmpty()) {
+            return;
+        }
 
-                if (result != null) {
-                    var model = CodeListMapper.mapToJenaModel(codeList, result);
-                    schemesRepository.put(codeList, model);
-                }
-            } catch (Exception e) {
-                LOG.warn("Could not resolve codelist scheme {} from env {}, {}", uri, awsEnv, e.getMessage());
-            }
-        });
+        var models = Flux.fromIterable(unresolved)
+                .flatMap(this::fetchCodeList, concurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+
+        if (models == null || models.isEmpty()) {
+            return;
+        }
+        try {
+            schemesRepository.putAll(models);
+            models.keySet().forEach(codeList -> resolvedCodeLists.put(codeList, Boolean.TRUE));
+        } catch (Exception e) {
+            LOG.warn("Could not save codelist schemes {}, {}", models.keySet(), e.getMessage());
+        }
+    }
+
+    private Mono<Map.Entry<String, Model>> fetchCodeList(String codeList) {
+        return Mono.defer(() -> {
+                    var uri = URI.create(codeList);
+                    LOG.debug("Fetching codelist {} from env {}", uri, awsEnv);
+                    return client.get().uri(builder -> builder
+                                    .path(uri.getPath())
+                                    .queryParam("env", awsEnv)
+                                    .build())
+                            .accept(MediaType.APPLICATION_JSON)
+                            .retrieve()
+                            .bodyToMono(new ParameterizedTypeReference<CodeListDTO>() {});
+                })
+                .map(result -> Map.entry(codeList, CodeListMapper.mapToJenaModel(codeList, result)))
+                .onErrorResume(e -> {
+                    LOG.warn("Could not resolve codelist scheme {} from env {}, {}", codeList, awsEnv, e.getMessage());
+                    return Mono.empty();
+                });
     }
 
 }
@@ -14,6 +14,7 @@ import fi.vm.yti.datamodel.api.v2.mapper.ResourceMapper;
 import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexResource;
 import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.datamodel.api.v2.security.DataModelAuthorizationManager;
+import fi.vm.yti.datamodel.api.v2.service.ReleaseJobService.ReleaseStage;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelMapperUtils;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelUtils;
@@ -29,20 +30,35 @@ import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.path.PathFactory;
 import org.apache.jena.vocabulary.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.topbraid.shacl.vocabulary.SH;
 
-import java.io.StringWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -64,6 +80,9 @@ public class DataModelService {
     private final IndexService indexService;
     private final AuthenticatedUserProvider userProvider;
     private final DataModelSubscriptionService dataModelSubscriptionService;
+    private final ExportCacheService exportCacheService;
+    private final ReleaseJobService releaseJobService;
+    private final int referenceUpdateWorkers;
 
     @Autowired
     public DataModelService(CoreRepository coreRepository,
@@ -74,7 +93,10 @@ public class DataModelService {
                             VisualizationService visualizationService,
                             CodeListService codeListService,
                             IndexService indexService,
-                            AuthenticatedUserProvider userProvider, DataModelSubscriptionService dataModelSubscriptionService) {
+                            AuthenticatedUserProvider userProvider, DataModelSubscriptionService dataModelSubscriptionService,
+                            ExportCacheService exportCacheService,
+                            ReleaseJobService releaseJobService,
+                            @Value("${release.references.workers:4}") int referenceUpdateWorkers) {
         this.coreRepository = coreRepository;
         this.authorizationManager = authorizationManager;
         this.groupManagementService = groupManagementService;
@@ -85,6 +107,9 @@ public class DataModelService {
         this.indexService = indexService;
         this.userProvider = userProvider;
         this.dataModelSubscriptionService = dataModelSubscriptionService;
+        this.exportCacheService = exportCacheService;
+        this.releaseJobService = releaseJobService;
+        this.referenceUpdateWorkers = Math.max(1, referenceUpdateWorkers);
     }
 
     public DataModelInfoDTO getDraft(String prefix) {
@@ -199,6 +224,9 @@ public class DataModelService {
         }
 
         coreRepository.delete(graphUri);
+        if (version != null) {
+            exportCacheService.invalidate(prefix, version);
+        }
 
         // ensure the integrity of owl:priorVersion information
         // if removing draft version without any published versions, also notification topic will be removed
@@ -220,10 +248,18 @@ public class DataModelService {
         return coreRepository.graphExists(DataModelURI.Factory.createModelURI(prefix).getModelURI());
     }
 
-    public ResponseEntity<String> export(String prefix, String version, String accept, boolean showAsFile, String language) {
+    public ResponseEntity<StreamingResponseBody> export(String prefix, String version, String accept, boolean showAsFile, String language) {
+        return export(prefix, version, accept, showAsFile, language, null);
+    }
+
+    /**
+     * Export data model. Published versions are served from the export cache with an ETag,
+     * and 304 Not Modified is returned if the ETag matches the If-None-Match header.
+     */
+    public ResponseEntity<StreamingResponseBody> export(String prefix, String version, String accept, boolean showAsFile,
+                                                        String language, String ifNoneMatch) {
         var uri = DataModelURI.Factory.createModelURI(prefix, version);
 
-        Model exportedModel;
         Model model;
 
         try {
@@ -238,8 +274,78 @@ public class DataModelService {
 
         var hasRights = authorizationManager.hasRightToModel(prefix, model);
 
+        var fileExtension = switch (accept) {
+            case "text/turtle" -> ".ttl";
+            case "application/n-triples" -> ".nt";
+            case "application/rdf+xml" -> ".rdf";
+            case "application/vnd+oai+openapi+json", "application/schema+json" -> ".json";
+            default -> ".jsonld";
+        };
+
+        var contentDisposition = showAsFile
+                ? "attachment; filename=" + uri.getModelId() + fileExtension
+                : "inline";
+
+        // published versions change rarely, serve them from the pre-rendered export cache. Only the languages
+        // of the model are cached, other languages would fill the cache with copies of the same document.
+        var cacheable = version != null && (!ExportCacheService.isLocalized(accept) || language == null
+                || MapperUtils.arrayPropertyToSet(model.getResource(uri.getModelURI()), DCTerms.language).contains(language));
+        if (cacheable) {
+            var key = new ExportCacheService.ExportKey(prefix, version, getExportRevision(uri), accept, language, !hasRights);
+            var cached = exportCacheService.getOrRender(key, outputStream ->
+                    writeModel(outputStream, getExportedModel(uri, model, hasRights), accept, language));
+            if (cached != null && matchesETag(ifNoneMatch, cached.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(cached.etag())
+                        .build();
+            }
+            if (cached != null) {
+                // file is opened before returning, since the cache may be cleared before the body is written
+                InputStream input = null;
+                try {
+                    input = Files.newInputStream(cached.path());
+                } catch (IOException e) {
+                    logger.warn("Cached export {} removed, rendering the export", cached.path());
+                }
+                if (input != null) {
+                    var cachedInput = input;
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                            .eTag(cached.etag())
+                            .body(outputStream -> {
+                                try (cachedInput) {
+                                    cachedInput.transferTo(outputStream);
+                                }
+                            });
+                }
+            }
+        }
+
+        var exportedModel = getExportedModel(uri, model, hasRights);
+
+        // serialize directly to the response output stream instead of buffering the whole document
+        StreamingResponseBody body = outputStream -> writeModel(outputStream, exportedModel, accept, language);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                .body(body);
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(value -> value.startsWith("W/") ? value.substring(2) : value)
+                .anyMatch(value -> value.equals("*") || value.equals(etag));
+    }
+
+    private static Model getExportedModel(DataModelURI uri, Model model, boolean hasRights) {
+        Model exportedModel;
+
         // if no version is defined, return only metadata of the draft version
-        if (version == null && !hasRights) {
+        if (uri.getVersion() == null && !hasRights) {
             var modelResource = model.getResource(uri.getModelURI());
             exportedModel = modelResource.listProperties().toModel();
         } else {
@@ -254,38 +360,26 @@ public class DataModelService {
                     new SimpleSelector(null, SKOS.editorialNote, (String) null)).toList();
             exportedModel.remove(hiddenValues);
         }
+        return exportedModel;
+    }
 
-        var stringWriter = new StringWriter();
-        var fileExtension = ".jsonld";
+    private static void writeModel(OutputStream outputStream, Model model, String accept, String language) throws IOException {
         switch (accept) {
-            case "text/turtle":
-                fileExtension = ".ttl";
-                RDFDataMgr.write(stringWriter, exportedModel, Lang.TURTLE);
-                break;
-            case "application/rdf+xml":
-                fileExtension = ".rdf";
-                RDFDataMgr.write(stringWriter, exportedModel, Lang.RDFXML);
-                break;
-            case "application/vnd+oai+openapi+json":
-                fileExtension = ".json";
-                OpenAPIBuilder.export(stringWriter, exportedModel, language);
-                break;
-            case "application/schema+json":
-                fileExtension = ".json";
-                JSONSchemaBuilder.export(stringWriter, exportedModel, language);
-                break;
-            case "application/ld+json":
-            default:
-                RDFDataMgr.write(stringWriter, exportedModel, Lang.JSONLD);
+            case "text/turtle" -> RDFDataMgr.write(outputStream, model, Lang.TURTLE);
+            case "application/n-triples" -> StreamRDFWriter.write(outputStream, model.getGraph(), RDFFormat.NTRIPLES);
+            case "application/rdf+xml" -> RDFDataMgr.write(outputStream, model, Lang.RDFXML);
+            case "application/vnd+oai+openapi+json" -> {
+                var writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+                OpenAPIBuilder.export(writer, model, language);
+                writer.flush();
+            }
+            case "application/schema+json" -> {
+                var writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+                JSONSchemaBuilder.export(writer, model, language);
+                writer.flush();
+            }
+            default -> RDFDataMgr.write(outputStream, model, Lang.JSONLD);
         }
-
-        var contentDisposition = showAsFile
-                ? "attachment; filename=" + uri.getModelId() + fileExtension
-                : "inline";
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
-                .body(stringWriter.toString());
     }
 
     public URI createRelease(String prefix, String version, Status status) throws URISyntaxException {
@@ -323,8 +417,57 @@ public class DataModelService {
         coreRepository.put(modelVersionURI.getDraftGraphURI(), newDraft);
         coreRepository.put(modelVersionURI.getGraphURI(), model);
 
-        updateDraftReferences(modelUri, version);
+        auditService.log(AuditService.ActionType.CREATE, modelVersionURI.getGraphURI(), userProvider.getUser());
 
+        // The version is stored, rest of the stages are run in the background
+        releaseJobService.submit(modelVersionURI, getReleaseStages(modelVersionURI, model));
+        return new URI(modelVersionURI.getGraphURI());
+    }
+
+    /**
+     * Resume release jobs interrupted e.g. by a restart of another instance
+     */
+    @Scheduled(initialDelayString = "${release.job.resumeInterval:60000}",
+            fixedDelayString = "${release.job.resumeInterval:60000}")
+    public void resumeReleases() {
+        releaseJobService.resumeInterrupted(uri -> getReleaseStages(uri, coreRepository.fetch(uri.getGraphURI())));
+    }
+
+    /**
+     * Stages run after the version has been stored. Exports are rendered after updating the references,
+     * since the update clears the export cache.
+     * @param modelVersionURI uri of the released version
+     * @param model released version
+     */
+    private List<ReleaseStage> getReleaseStages(DataModelURI modelVersionURI, Model model) {
+        var modelUri = modelVersionURI.getModelURI();
+        var prefix = modelVersionURI.getModelId();
+        var version = modelVersionURI.getVersion();
+        return List.of(
+                ReleaseStage.of("references", () -> updateDraftReferences(modelUri, version)),
+                ReleaseStage.of("index", () -> indexRelease(modelUri, model)),
+                ReleaseStage.of("positions", () -> visualisationService.saveVersionedPositions(prefix, version)),
+                new ReleaseStage("exports", "references", () -> prerenderExports(modelVersionURI, model)),
+                ReleaseStage.of("notification", () -> sendNotification(model, modelVersionURI))
+        );
+    }
+
+    public ReleaseStatusDTO getReleaseStatus(String prefix, String version) {
+        return releaseJobService.getStatus(DataModelURI.Factory.createModelURI(prefix, version));
+    }
+
+    /**
+     * Wait until the background stages of the release have finished
+     */
+    public void awaitRelease(String prefix, String version) {
+        releaseJobService.await(DataModelURI.Factory.createModelURI(prefix, version));
+    }
+
+    /**
+     * Index the new version and its resources. Draft model does not need to be indexed since
+     * opensearch specific properties on it did not change
+     */
+    private void indexRelease(String modelUri, Model model) {
         var newVersion = mapper.mapToIndexModel(modelUri, model);
         indexService.createModelToIndex(newVersion);
         var list = new ArrayList<IndexResource>();
@@ -335,12 +478,40 @@ public class DataModelService {
                 .filterDrop(RDFNode::isAnon);
         resources.forEach(resource -> list.add(ResourceMapper.mapToIndexResource(model, resource.getURI())));
         indexService.bulkInsert(IndexService.OPEN_SEARCH_INDEX_RESOURCE, list);
-        visualisationService.saveVersionedPositions(prefix, version);
-        auditService.log(AuditService.ActionType.CREATE, modelVersionURI.getGraphURI(), userProvider.getUser());
+    }
 
-        sendNotification(model, modelVersionURI);
-        //Draft model does not need to be indexed since opensearch specific properties on it did not change
-        return new URI(modelVersionURI.getGraphURI());
+    /**
+     * Render public RDF exports of the new version, so that the first requests don't need to serialize the model
+     */
+    private void prerenderExports(DataModelURI uri, Model model) {
+        var exportedModel = getExportedModel(uri, ModelFactory.createDefaultModel()
+                .setNsPrefixes(model.getNsPrefixMap())
+                .add(model), false);
+        var revision = getExportRevision(uri);
+        List.of("application/ld+json", "text/turtle", "application/rdf+xml").forEach(contentType -> {
+            var key = new ExportCacheService.ExportKey(uri.getModelId(), uri.getVersion(), revision, contentType, null, true);
+            exportCacheService.prerender(key, outputStream -> writeModel(outputStream, exportedModel, contentType, null));
+        });
+    }
+
+    /**
+     * Revision of the published version for the export cache. Read from Fuseki instead of the graph cache,
+     * so that changes made by other instances are seen immediately. The modification date changes when the
+     * metadata is updated, and the imports change when the references are updated to a new version.
+     * @param uri uri of the published version
+     * @return hash of the modification date and imports
+     */
+    private String getExportRevision(DataModelURI uri) {
+        var select = new SelectBuilder()
+                .addVar("?value")
+                .addGraph(NodeFactory.createURI(uri.getGraphURI()), NodeFactory.createURI(uri.getModelURI()),
+                        PathFactory.pathAlt(PathFactory.pathAlt(
+                                PathFactory.pathLink(DCTerms.modified.asNode()),
+                                PathFactory.pathLink(OWL.imports.asNode())),
+                                PathFactory.pathLink(DCTerms.requires.asNode())), "?value");
+        var values = new TreeSet<String>();
+        coreRepository.querySelect(select.build(), row -> values.add(row.get("value").toString()));
+        return DigestUtils.md5DigestAsHex(String.join("\n", values).getBytes(StandardCharsets.UTF_8));
     }
 
     public List<ModelVersionInfo> getPriorVersions(String prefix, String version){
@@ -382,6 +553,7 @@ public class DataModelService {
         mapper.mapUpdateVersionedModel(model, uri.getModelURI(), dto, userProvider.getUser());
 
         coreRepository.put(uri.getGraphURI(), model);
+        exportCacheService.invalidate(prefix, version);
 
         var indexModel = mapper.mapToIndexModel(uri.getModelURI(), model);
         indexService.updateModelToIndex(indexModel);
@@ -391,23 +563,75 @@ public class DataModelService {
     /**
      * Updates references from draft to published version in other data models.
      * E.g. https://iri.suomi.fi/model/foo/resource -> https://iri.suomi.fi/model/foo/1.0.0/resource
+     * Only the graphs importing or requiring the model are updated, with one update per graph.
      * @param graph published graph uri
      */
     public void updateDraftReferences(String graph, String newVersion) {
+        var graphs = getReferringGraphs(graph);
+        logger.info("Updating references to {} in {} graphs", graph, graphs.size());
+
+        if (graphs.size() == 1) {
+            updateDraftReferences(graphs.iterator().next(), graph, newVersion);
+        } else if (!graphs.isEmpty()) {
+            var executor = Executors.newFixedThreadPool(Math.min(referenceUpdateWorkers, graphs.size()));
+            try {
+                var futures = graphs.stream()
+                        .map(g -> CompletableFuture.runAsync(() -> updateDraftReferences(g, graph, newVersion), executor))
+                        .toArray(CompletableFuture[]::new);
+                CompletableFuture.allOf(futures).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        // published versions of other models may have been changed
+        exportCacheService.invalidateAll();
+    }
+
+    /**
+     * Find graphs of other data models importing or requiring the model. Resources of another data model
+     * can be referred to only if the model is imported or required, so these are all the graphs referring to it.
+     * @param graph model uri, e.g. https://iri.suomi.fi/model/test/
+     * @return graph uris
+     */
+    private Set<String> getReferringGraphs(String graph) {
+        var select = new SelectBuilder()
+                .setDistinct(true)
+                .addVar("?g");
+        var exprFactory = select.getExprFactory();
+        // imports may be stored with or without the trailing slash
+        select.addWhereValueVar("?model", NodeFactory.createURI(graph),
+                        NodeFactory.createURI(graph.substring(0, graph.length() - 1)))
+                .addGraph("?g", "?s", PathFactory.pathAlt(
+                        PathFactory.pathLink(OWL.imports.asNode()),
+                        PathFactory.pathLink(DCTerms.requires.asNode())), "?model")
+                .addFilter(exprFactory.not(exprFactory.strstarts(exprFactory.str("?g"), graph)));
+
+        var graphs = new HashSet<String>();
+        coreRepository.querySelect(select.build(), row -> graphs.add(row.get("g").toString()));
+        return graphs;
+    }
+
+    private void updateDraftReferences(String referringGraph, String graph, String newVersion) {
+        var g = NodeFactory.createURI(referringGraph);
         var builder = new UpdateBuilder();
         var e = builder.getExprFactory();
         builder
-                .addDelete("?g", "?s", "?p", "?o")
-                .addInsert("?g", "?s", "?p", "?releaseUri")
+                .addDelete(g, "?s", "?p", "?o")
+                .addInsert(g, "?s", "?p", "?releaseUri")
                 .addWhere(new WhereBuilder()
-                        .addGraph("?g", "?s", "?p", "?o"))
+                        .addGraph(g, "?s", "?p", "?o"))
                         .addFilter(e.regex(e.str("?o"), graph + "([a-zA-Z](.)*)?$", ""))
                         .addBind(e.iri(
                             e.replace(e.str("?o"), graph, graph + newVersion + "/")
-                        ), "releaseUri")
-                        .addFilter(e.not(e.strstarts(e.str("?g"), graph)));
+                        ), "releaseUri");
 
-        coreRepository.queryUpdate(builder.buildRequest());
+        coreRepository.queryUpdate(referringGraph, builder.buildRequest());
     }
 
     public String copyDataModel(String oldPrefix, String version, String newPrefix) {
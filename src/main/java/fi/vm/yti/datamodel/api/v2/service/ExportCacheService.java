@@ -0,0 +1,300 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Stores rendered exports of published data model versions on local disk, so the rendered document can be
+ * served as a file with a strong ETag. Published versions are changed only by metadata updates and reference
+ * updates, so the key contains a revision of the version read from the graph. A change made by any instance
+ * changes the revision, and the old entries are not served anymore.
+ * <p>
+ * The cache is bounded by the number of entries and their total size, least recently used entries are removed.
+ */
+@Service
+public class ExportCacheService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExportCacheService.class);
+
+    private static final Map<String, String> CONTENT_TYPE_EXTENSIONS = Map.of(
+            "application/ld+json", "jsonld",
+            "text/turtle", "ttl",
+            "application/n-triples", "nt",
+            "application/rdf+xml", "rdf",
+            "application/vnd+oai+openapi+json", "openapi.json",
+            "application/schema+json", "schema.json"
+    );
+
+    // OpenAPI and JSON schema exports are the only ones depending on the language parameter
+    private static final Set<String> LOCALIZED_CONTENT_TYPES = Set.of(
+            "application/vnd+oai+openapi+json",
+            "application/schema+json"
+    );
+
+    private static final Pattern SAFE_PATH_SEGMENT = Pattern.compile("^[a-zA-Z0-9._-]{1,64}$");
+
+    // access ordered for LRU eviction, guarded by itself
+    private final LinkedHashMap<ExportKey, CachedExport> exports = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize = 0;
+    private final boolean enabled;
+    private final Path cacheDirectory;
+    private final long expireTime;
+    private final int maxEntries;
+    private final long maxSize;
+
+    public ExportCacheService(@Value("${export.cache.enabled:true}") boolean enabled,
+                              @Value("${export.cache.directory:}") String cacheDirectory,
+                              @Value("${export.cache.expiration:86400}") Long expireTime,
+                              @Value("${export.cache.maxEntries:1000}") Integer maxEntries,
+                              @Value("${export.cache.maxSize:1073741824}") Long maxSize) {
+        this.enabled = enabled;
+        this.cacheDirectory = cacheDirectory == null || cacheDirectory.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "datamodel-export-cache")
+                : Path.of(cacheDirectory);
+        this.expireTime = expireTime;
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+        // files left by the previous run are not tracked by the size limit
+        if (enabled && Files.isDirectory(this.cacheDirectory)) {
+            try (var files = Files.list(this.cacheDirectory)) {
+                files.forEach(this::delete);
+            } catch (IOException e) {
+                LOG.warn("Could not remove cached exports {}", this.cacheDirectory, e);
+            }
+        }
+    }
+
+    /**
+     * Get rendered export from the cache. If it does not exist, it is rendered with given renderer and stored.
+     * @param key export key
+     * @param renderer writes the export document to the given output stream
+     * @return cached export or null, if the export cannot be cached
+     */
+    public CachedExport getOrRender(ExportKey key, StreamingResponseBody renderer) {
+        var path = getPath(key);
+        if (path == null) {
+            return null;
+        }
+        var cached = get(key);
+        if (cached != null && !isExpired(cached) && Files.exists(cached.path())) {
+            return cached;
+        }
+        try {
+            cached = Files.exists(path) ? load(path) : null;
+            if (cached == null || isExpired(cached)) {
+                cached = render(path, renderer);
+            }
+            put(key, cached);
+            return cached;
+        } catch (Exception e) {
+            LOG.warn("Could not cache export {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Render export in advance, e.g. when a new version is published
+     * @param key export key
+     * @param renderer writes the export document to the given output stream
+     */
+    public void prerender(ExportKey key, StreamingResponseBody renderer) {
+        var path = getPath(key);
+        if (path == null) {
+            return;
+        }
+        try {
+            put(key, render(path, renderer));
+        } catch (Exception e) {
+            LOG.warn("Could not prerender export {}", path, e);
+        }
+    }
+
+    /**
+     * Remove all cached exports of a data model version
+     * @param prefix data model prefix
+     * @param version version
+     */
+    public void invalidate(String prefix, String version) {
+        synchronized (exports) {
+            exports.entrySet().removeIf(entry -> {
+                var remove = entry.getKey().prefix().equals(prefix) && entry.getKey().version().equals(version);
+                if (remove) {
+                    totalSize -= entry.getValue().size();
+                }
+                return remove;
+            });
+        }
+        if (isSafe(prefix) && isSafe(version)) {
+            delete(cacheDirectory.resolve(prefix).resolve(version));
+        }
+    }
+
+    /**
+     * Remove all cached exports, e.g. when references in published versions are updated
+     */
+    public void invalidateAll() {
+        synchronized (exports) {
+            exports.clear();
+            totalSize = 0;
+        }
+        delete(cacheDirectory);
+    }
+
+    /**
+     * @param contentType serialization format
+     * @return true if the export depends on the language
+     */
+    public static boolean isLocalized(String contentType) {
+        return LOCALIZED_CONTENT_TYPES.contains(contentType);
+    }
+
+    private CachedExport get(ExportKey key) {
+        synchronized (exports) {
+            return exports.get(key);
+        }
+    }
+
+    /**
+     * Add entry and remove least recently used entries (and their files) until the cache is within its limits
+     */
+    private void put(ExportKey key, CachedExport export) {
+        var evicted = new ArrayList<Path>();
+        synchronized (exports) {
+            var previous = exports.put(key, export);
+            if (previous != null) {
+                totalSize -= previous.size();
+            }
+            totalSize += export.size();
+            var iterator = exports.entrySet().iterator();
+            while ((exports.size() > maxEntries || totalSize > maxSize) && iterator.hasNext()) {
+                var eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                totalSize -= eldest.getValue().size();
+                evicted.add(eldest.getValue().path());
+                iterator.remove();
+            }
+        }
+        evicted.forEach(path -> {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOG.warn("Could not remove cached export {}", path, e);
+            }
+        });
+    }
+
+    private CachedExport render(Path path, StreamingResponseBody renderer) throws IOException {
+        Files.createDirectories(path.getParent());
+        var tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            var digest = getDigest();
+            try (var out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                renderer.writeTo(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new CachedExport(path, toETag(digest), Instant.now(), Files.size(path));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private CachedExport load(Path path) throws IOException {
+        var digest = getDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return new CachedExport(path, toETag(digest), Files.getLastModifiedTime(path).toInstant(), Files.size(path));
+    }
+
+    private boolean isExpired(CachedExport export) {
+        return expireTime > 0 && export.created().plusSeconds(expireTime).isBefore(Instant.now());
+    }
+
+    private Path getPath(ExportKey key) {
+        var extension = CONTENT_TYPE_EXTENSIONS.get(key.contentType());
+        if (!enabled || extension == null || !isSafe(key.prefix()) || !isSafe(key.version()) || !isSafe(key.revision())) {
+            return null;
+        }
+        var fileName = key.publicOnly() ? "public" : "full";
+        if (LOCALIZED_CONTENT_TYPES.contains(key.contentType())) {
+            if (key.language() != null && !isSafe(key.language())) {
+                return null;
+            }
+            fileName += "-" + (key.language() != null ? key.language() : "default");
+        }
+        return cacheDirectory
+                .resolve(key.prefix())
+                .resolve(key.version())
+                .resolve(key.revision())
+                .resolve(fileName + "." + extension);
+    }
+
+    private void delete(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            LOG.warn("Could not remove cached exports {}", path, e);
+        }
+    }
+
+    private static boolean isSafe(String pathSegment) {
+        return pathSegment != null
+                && SAFE_PATH_SEGMENT.matcher(pathSegment).matches()
+                && !pathSegment.startsWith(".");
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toETag(MessageDigest digest) {
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
+
+    /**
+     * @param prefix data model prefix
+     * @param version published version
+     * @param revision revision of the published version, changes when the version graph is modified
+     * @param contentType serialization format
+     * @param language language, used only with OpenAPI and JSON schema exports
+     * @param publicOnly true if editorial notes are removed from the export
+     */
+    public record ExportKey(String prefix, String version, String revision, String contentType, String language,
+                            boolean publicOnly) {
+        public ExportKey {
+            if (!LOCALIZED_CONTENT_TYPES.contains(contentType)) {
+                language = null;
+            }
+        }
+    }
+
+    public record CachedExport(Path path, String etag, Instant created, long size) {}
+}
@@ -0,0 +1,223 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.common.Constants;
+import fi.vm.yti.common.enums.GraphType;
+import fi.vm.yti.common.enums.Status;
+import fi.vm.yti.common.exception.ResourceNotFoundException;
+import fi.vm.yti.common.properties.SuomiMeta;
+import fi.vm.yti.common.util.MapperUtils;
+import fi.vm.yti.datamodel.api.v2.dto.ModelConstants;
+import fi.vm.yti.datamodel.api.v2.properties.DCAP;
+import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelMapperUtils;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import org.apache.jena.arq.querybuilder.ConstructBuilder;
+import org.apache.jena.arq.querybuilder.SelectBuilder;
+import org.apache.jena.arq.querybuilder.WhereBuilder;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catalog of data model graphs with the metadata of the model resource (type, prefix, label, status,
+ * contributors, imports, prior version) and the size of the graph. Used instead of fetching the whole
+ * graph when only the model's metadata is needed.
+ * Entries are removed when CoreRepository modifies the graph and loaded again on the next read.
+ * Graphs may be modified or removed by other instances, so entries are reloaded after the expiration time,
+ * which is shorter for drafts than for versions.
+ */
+@Service
+public class GraphCatalogService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GraphCatalogService.class);
+
+    private static final List<Property> CATALOG_PROPERTIES = List.of(RDF.type, DCAP.preferredXMLNamespacePrefix,
+            RDFS.label, SuomiMeta.publicationStatus, DCTerms.contributor, OWL.imports, DCTerms.requires,
+            OWL.priorVersion);
+
+    private final CoreRepository coreRepository;
+    private final long draftExpireMillis;
+    private final long versionExpireMillis;
+    private final Map<String, GraphMetadata> catalog = new ConcurrentHashMap<>();
+
+    public GraphCatalogService(CoreRepository coreRepository,
+                               @Value("${graph.catalog.draft.expiration:60}") Long draftExpireTime,
+                               @Value("${graph.catalog.version.expiration:3600}") Long versionExpireTime) {
+        this.coreRepository = coreRepository;
+        this.draftExpireMillis = draftExpireTime * 1000;
+        this.versionExpireMillis = versionExpireTime * 1000;
+        coreRepository.addGraphChangeListener(this::invalidate);
+    }
+
+    /**
+     * Get metadata of the data model graph
+     * @param graph graph uri
+     * @return metadata
+     * @throws ResourceNotFoundException if graph does not exist
+     */
+    public GraphMetadata get(String graph) {
+        var metadata = catalog.get(graph);
+        if (metadata != null && !isExpired(metadata)) {
+            return metadata;
+        }
+        metadata = load(graph).get(graph);
+        if (metadata == null) {
+            catalog.remove(graph);
+            throw new ResourceNotFoundException(graph);
+        }
+        catalog.put(graph, metadata);
+        return metadata;
+    }
+
+    /**
+     * Load metadata of all data model graphs with a single query
+     */
+    public void init() {
+        var loaded = load(null);
+        catalog.clear();
+        catalog.putAll(loaded);
+        LOG.info("Graph catalog initialized with {} graphs", loaded.size());
+    }
+
+    /**
+     * Remove graphs starting with the given graph uri or namespace, empty string removes all
+     * @param graph graph uri or namespace
+     */
+    public void invalidate(String graph) {
+        if (graph == null || graph.isEmpty()) {
+            catalog.clear();
+        } else {
+            catalog.keySet().removeIf(key -> key.startsWith(graph));
+        }
+    }
+
+    private boolean isExpired(GraphMetadata metadata) {
+        var expireMillis = metadata.version() == null ? draftExpireMillis : versionExpireMillis;
+        return System.currentTimeMillis() - metadata.loaded() > expireMillis;
+    }
+
+    /**
+     * @param graph graph to load, null for all data model graphs
+     * @return metadata by graph uri
+     */
+    private Map<String, GraphMetadata> load(String graph) {
+        // a single graph is set as a constant, it cannot share the VALUES block of ?p
+        var g = graph != null ? NodeFactory.createURI(graph) : NodeFactory.createVariable("g");
+        var model = "?model";
+        var construct = new ConstructBuilder()
+                .addPrefixes(ModelConstants.PREFIXES)
+                .addConstruct(g, "?p", "?o")
+                .addGraph(g, new WhereBuilder()
+                        .addWhere(model, RDF.type, OWL.Ontology)
+                        .addWhere(model, "?p", "?o"))
+                .addValueVar("?p", CATALOG_PROPERTIES.toArray());
+
+        var count = new SelectBuilder()
+                .addVar("count(*)", "?count")
+                .addGraph(g, "?s", "?p", "?o");
+
+        if (graph == null) {
+            var exprFactory = construct.getExprFactory();
+            construct.addFilter(exprFactory.strstarts(exprFactory.str(g), Constants.DATA_MODEL_NAMESPACE));
+            count.addVar(g)
+                    .addGroupBy(g)
+                    .addFilter(exprFactory.strstarts(exprFactory.str(g), Constants.DATA_MODEL_NAMESPACE));
+        }
+
+        var tripleCounts = new HashMap<String, Long>();
+        coreRepository.querySelect(count.build(), row ->
+                tripleCounts.put(row.contains("g") ? row.get("g").toString() : graph,
+                        row.getLiteral("count").getLong()));
+
+        var result = coreRepository.queryConstruct(construct.build());
+        var metadata = new HashMap<String, GraphMetadata>();
+        result.listSubjects().forEach(subject -> {
+            var graphURI = subject.getURI();
+            metadata.put(graphURI, GraphMetadata.of(graphURI, subject, tripleCounts.getOrDefault(graphURI, 0L)));
+        });
+        return metadata;
+    }
+
+    /**
+     * Metadata of a data model graph
+     * @param graph graph uri
+     * @param modelURI uri of the model resource
+     * @param version version number, null for drafts
+     * @param loaded time when the metadata was loaded
+     */
+    public record GraphMetadata(String graph,
+                                String modelURI,
+                                String version,
+                                GraphType type,
+                                String prefix,
+                                Map<String, String> label,
+                                Status status,
+                                Set<String> contributors,
+                                Set<String> imports,
+                                Set<String> requires,
+                                String priorVersion,
+                                long tripleCount,
+                                long loaded) {
+
+        /**
+         * Create metadata from the model resource
+         * @param graph graph uri
+         * @param resource model resource
+         * @param tripleCount number of triples in the graph
+         * @return metadata
+         */
+        public static GraphMetadata of(String graph, Resource resource, long tripleCount) {
+            var uri = DataModelURI.Factory.fromURI(graph);
+            var status = MapperUtils.propertyToString(resource, SuomiMeta.publicationStatus);
+            return new GraphMetadata(
+                    graph,
+                    uri.getModelURI(),
+                    uri.getVersion(),
+                    DataModelMapperUtils.getModelTypeFromResource(resource),
+                    MapperUtils.propertyToString(resource, DCAP.preferredXMLNamespacePrefix),
+                    MapperUtils.localizedPropertyToMap(resource, RDFS.label),
+                    status != null ? MapperUtils.getStatusFromUri(status) : null,
+                    Set.copyOf(MapperUtils.arrayPropertyToSet(resource, DCTerms.contributor)),
+                    Set.copyOf(MapperUtils.arrayPropertyToSet(resource, OWL.imports)),
+                    Set.copyOf(MapperUtils.arrayPropertyToSet(resource, DCTerms.requires)),
+                    MapperUtils.propertyToString(resource, OWL.priorVersion),
+                    tripleCount,
+                    System.currentTimeMillis());
+        }
+
+        /**
+         * Model containing the model resource with its type and contributors, e.g. for authorization checks
+         * @return model
+         */
+        public Model toModel() {
+            var model = ModelFactory.createDefaultModel();
+            var resource = model.createResource(modelURI)
+                    .addProperty(RDF.type, OWL.Ontology);
+            if (GraphType.PROFILE.equals(type)) {
+                resource.addProperty(RDF.type, SuomiMeta.ApplicationProfile);
+            }
+            contributors.forEach(c -> resource.addProperty(DCTerms.contributor, ResourceFactory.createResource(c)));
+            if (priorVersion != null) {
+                resource.addProperty(OWL.priorVersion, ResourceFactory.createResource(priorVersion));
+            }
+            return model;
+        }
+    }
+}
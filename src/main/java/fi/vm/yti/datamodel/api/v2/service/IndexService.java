@@ -10,6 +10,7 @@ import fi.vm.yti.common.service.AuditService;
 import fi.vm.yti.datamodel.api.v2.security.DataModelAuthorizationManager;
 import fi.vm.yti.datamodel.api.v2.dto.ModelConstants;
 import fi.vm.yti.datamodel.api.v2.dto.ResourceType;
+import fi.vm.yti.datamodel.api.v2.endpoint.error.OpenSearchException;
 import fi.vm.yti.datamodel.api.v2.mapper.ModelMapper;
 import fi.vm.yti.datamodel.api.v2.mapper.ResourceMapper;
 import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexModel;
@@ -26,6 +27,7 @@ import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.vocabulary.*;
+import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.mapping.DynamicTemplate;
 import org.opensearch.client.opensearch._types.mapping.Property;
 import org.opensearch.client.opensearch._types.mapping.TypeMapping;
@@ -33,14 +35,27 @@ import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch._types.query_dsl.QueryBuilders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.topbraid.shacl.vocabulary.SH;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static fi.vm.yti.common.opensearch.OpenSearchUtil.*;
@@ -54,6 +69,8 @@ public class IndexService extends OpenSearchInitializer {
     public static final String OPEN_SEARCH_INDEX_RESOURCE = "resources_v2";
     public static final String OPEN_SEARCH_INDEX_EXTERNAL = "external_v2";
     private static final String GRAPH_VARIABLE = "?model";
+    private static final DateTimeFormatter INDEX_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String INDEX_REFRESH_INTERVAL = "1s";
 
     private final AuditService auditService = new AuditService("INDEX");
     private final CoreRepository coreRepository;
@@ -62,12 +79,33 @@ public class IndexService extends OpenSearchInitializer {
     private final AuthenticatedUserProvider userProvider;
     private final ModelMapper modelMapper;
     private final OpenSearchClientWrapper client;
+    private final int reindexWorkers;
+    private final int bulkBatchSize;
+    private final OpenSearchClient openSearchClient;
+    private final boolean aliasReindex;
+    private final String reindexReplicas;
+    private final ModelVisibilityCache modelVisibilityCache;
+    private final ModelSummaryIndex modelSummaryIndex;
+    private final UriResolutionIndex uriResolutionIndex;
+
+    // writes made during alias reindex by index alias, replayed to the new index before the alias is swapped
+    private final Map<String, Queue<Consumer<String>>> pendingWrites = new ConcurrentHashMap<>();
+    private final ReadWriteLock aliasSwapLock = new ReentrantReadWriteLock();
+
     public IndexService(OpenSearchClientWrapper client,
                         CoreRepository coreRepository,
                         ImportsRepository importsRepository,
                         DataModelAuthorizationManager authorizationManager,
                         AuthenticatedUserProvider userProvider,
-                        ModelMapper modelMapper) {
+                        ModelMapper modelMapper,
+                        @Value("${index.reindex.workers:4}") int reindexWorkers,
+                        @Value("${index.bulk.batchSize:500}") int bulkBatchSize,
+                        OpenSearchClient openSearchClient,
+                        @Value("${index.reindex.alias:true}") boolean aliasReindex,
+                        @Value("${index.reindex.replicas:1}") String reindexReplicas,
+                        ModelVisibilityCache modelVisibilityCache,
+                        ModelSummaryIndex modelSummaryIndex,
+                        UriResolutionIndex uriResolutionIndex) {
         super(client);
         this.client = client;
         this.coreRepository = coreRepository;
@@ -75,6 +113,14 @@ public class IndexService extends OpenSearchInitializer {
         this.authorizationManager = authorizationManager;
         this.userProvider = userProvider;
         this.modelMapper = modelMapper;
+        this.reindexWorkers = Math.max(1, reindexWorkers);
+        this.bulkBatchSize = Math.max(1, bulkBatchSize);
+        this.openSearchClient = openSearchClient;
+        this.aliasReindex = aliasReindex;
+        this.reindexReplicas = reindexReplicas;
+        this.modelVisibilityCache = modelVisibilityCache;
+        this.modelSummaryIndex = modelSummaryIndex;
+        this.uriResolutionIndex = uriResolutionIndex;
     }
 
     public void initIndexes() {
@@ -85,21 +131,31 @@ public class IndexService extends OpenSearchInitializer {
                 OPEN_SEARCH_INDEX_RESOURCE, getResourceMappings()
         );
         super.initIndexes(fn, indexConfig);
+        // summaries are loaded with the model index, load them separately only if the indexes already existed
+        if (!modelSummaryIndex.isLoaded()) {
+            initModelSummaries();
+        }
     }
 
     public void initDataModelIndexes() {
-        try {
-            initModelIndex();
-            initResourceIndex();
+        initModelIndex();
+        initResourceIndex();
+        LOG.info("Indexes initialized");
+    }
 
+    /**
+     * Create and populate external resource index if it does not exist. Search works without it,
+     * so it is built in the background during the startup.
+     */
+    public void initExternalIndex() {
+        try {
             if (!client.indexExists(OPEN_SEARCH_INDEX_EXTERNAL)) {
                 client.createIndex(OPEN_SEARCH_INDEX_EXTERNAL, getExternalResourceMappings());
                 initExternalResourceIndex();
+                LOG.info("External resource index initialized");
             }
-
-            LOG.info("Indexes initialized");
         } catch (IOException ex) {
-            LOG.warn("Index initialization failed!", ex);
+            LOG.warn("External resource index initialization failed!", ex);
         }
     }
 
@@ -107,6 +163,28 @@ public class IndexService extends OpenSearchInitializer {
      * Init model index
      */
     public void initModelIndex() {
+        initModelIndex(OPEN_SEARCH_INDEX_MODEL);
+    }
+
+    private void initModelIndex(String index) {
+        var list = getIndexModels();
+        client.bulkInsert(index, list);
+        modelSummaryIndex.load(list);
+    }
+
+    /**
+     * Load summaries of all data models to memory. Called at startup, if the model index is not
+     * populated, and periodically, because models changed by other instances are not updated to
+     * the summaries otherwise.
+     */
+    @Scheduled(initialDelayString = "${model.summary.refreshInterval:600000}",
+            fixedDelayString = "${model.summary.refreshInterval:600000}")
+    public void initModelSummaries() {
+        modelSummaryIndex.load(getIndexModels());
+        LOG.debug("Model summaries loaded");
+    }
+
+    private List<IndexModel> getIndexModels() {
         var constructBuilder = new ConstructBuilder()
                 .addPrefixes(ModelConstants.PREFIXES);
 
@@ -124,10 +202,14 @@ public class IndexService extends OpenSearchInitializer {
             var indexModel = modelMapper.mapToIndexModel(next.getURI(), newModel);
             list.add(indexModel);
         });
-        client.bulkInsert(OPEN_SEARCH_INDEX_MODEL, list);
+        return list;
     }
 
     public void initResourceIndex() {
+        initResourceIndex(OPEN_SEARCH_INDEX_RESOURCE);
+    }
+
+    private void initResourceIndex(String index) {
 
         var selectBuilder = new SelectBuilder();
         selectBuilder.addPrefixes(ModelConstants.PREFIXES);
@@ -139,27 +221,72 @@ public class IndexService extends OpenSearchInitializer {
         var graphs = new ArrayList<String>();
         coreRepository.querySelect(selectBuilder.build(), res -> graphs.add(res.get("g").toString()));
 
-        graphs.forEach(graph -> {
-            var model = coreRepository.fetch(graph);
-            indexGraphResource(model);
-        });
+        LOG.info("Indexing resources from {} graphs with {} workers", graphs.size(), reindexWorkers);
+
+        // Each worker fetches one graph at a time and waits for its bulk requests to complete
+        // before taking the next one, so at most reindexWorkers graphs are held in memory
+        var executor = Executors.newFixedThreadPool(reindexWorkers);
+        var completed = new AtomicInteger();
+        var failedGraphs = new ConcurrentLinkedQueue<String>();
+        var progressInterval = Math.max(1, graphs.size() / 10);
+        try {
+            var futures = graphs.stream()
+                    .map(graph -> CompletableFuture.runAsync(() -> {
+                        try {
+                            indexGraphResource(coreRepository.fetch(graph), index);
+                        } catch (Exception e) {
+                            LOG.warn("Failed to index resources from graph {}", graph, e);
+                            failedGraphs.add(graph);
+                        }
+                        var count = completed.incrementAndGet();
+                        if (count % progressInterval == 0 || count == graphs.size()) {
+                            LOG.info("Indexed resources from {}/{} graphs", count, graphs.size());
+                        }
+                    }, executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        if (!failedGraphs.isEmpty()) {
+            LOG.warn("Resources from {} graphs were not indexed: {}", failedGraphs.size(), failedGraphs);
+        }
     }
 
     public void indexGraphResource(Model model) {
+        write(OPEN_SEARCH_INDEX_RESOURCE, index -> indexGraphResource(model, index));
+    }
+
+    private void indexGraphResource(Model model, String index) {
         // list resources with type Class, Property, DatatypeProperty, NodeShape
         var resources = model.listSubjectsWithProperty(RDF.type, OWL.Class)
                 .andThen(model.listSubjectsWithProperty(RDF.type, OWL.ObjectProperty))
                 .andThen(model.listSubjectsWithProperty(RDF.type, OWL.DatatypeProperty))
                 .andThen(model.listSubjectsWithProperty(RDF.type, SH.NodeShape))
                 .filterDrop(RDFNode::isAnon);
-        var list = resources.mapWith(resource -> ResourceMapper.mapToIndexResource(model, resource.getURI())).toList();
-        // we should bulk insert resources for each model separately if there are a lot of resources otherwise might cause memory issues
-        if (!list.isEmpty()) {
-            client.bulkInsert(OPEN_SEARCH_INDEX_RESOURCE, list);
+
+        // send resources in fixed size batches to avoid building large bulk requests for big models
+        var batch = new ArrayList<IndexResource>(bulkBatchSize);
+        while (resources.hasNext()) {
+            var indexResource = ResourceMapper.mapToIndexResource(model, resources.next().getURI());
+            batch.add(indexResource);
+            uriResolutionIndex.invalidate(indexResource.getId());
+            if (batch.size() >= bulkBatchSize) {
+                client.bulkInsert(index, batch);
+                batch = new ArrayList<>(bulkBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            client.bulkInsert(index, batch);
         }
     }
 
     public void initExternalResourceIndex() {
+        initExternalResourceIndex(OPEN_SEARCH_INDEX_EXTERNAL);
+    }
+
+    private void initExternalResourceIndex(String index) {
         NamespaceService.DEFAULT_NAMESPACES.forEach((prefix, graphURI) -> {
             if (!(graphURI.endsWith("#") || graphURI.endsWith("/"))) {
                 graphURI = graphURI + Constants.RESOURCE_SEPARATOR;
@@ -218,8 +345,8 @@ public class IndexService extends OpenSearchInitializer {
                 }
                 list.add(indexResource);
             });
-            LOG.info("Indexing {} items to index {},", list.size(), OPEN_SEARCH_INDEX_EXTERNAL);
-            client.bulkInsert(OPEN_SEARCH_INDEX_EXTERNAL, list);
+            LOG.info("Indexing {} items to index {},", list.size(), index);
+            client.bulkInsert(index, list);
         });
     }
 
@@ -230,7 +357,9 @@ public class IndexService extends OpenSearchInitializer {
      */
     public void createModelToIndex(IndexModel model) {
         LOG.debug("Indexing: {}", model.getId());
-        client.putToIndex(OPEN_SEARCH_INDEX_MODEL, model);
+        write(OPEN_SEARCH_INDEX_MODEL, index -> client.putToIndex(index, model));
+        modelSummaryIndex.put(model);
+        modelVisibilityCache.invalidateAll();
     }
 
     /**
@@ -239,11 +368,15 @@ public class IndexService extends OpenSearchInitializer {
      * @param model Model to index
      */
     public void updateModelToIndex(IndexModel model) {
-        client.updateToIndex(OPEN_SEARCH_INDEX_MODEL, model);
+        write(OPEN_SEARCH_INDEX_MODEL, index -> client.updateToIndex(index, model));
+        modelSummaryIndex.put(model);
+        modelVisibilityCache.invalidateAll();
     }
 
     public void deleteModelFromIndex(String graph) {
-        client.removeFromIndex(OPEN_SEARCH_INDEX_MODEL, graph);
+        write(OPEN_SEARCH_INDEX_MODEL, index -> client.removeFromIndex(index, graph));
+        modelSummaryIndex.remove(graph);
+        modelVisibilityCache.invalidateAll();
     }
 
     /**
@@ -253,7 +386,8 @@ public class IndexService extends OpenSearchInitializer {
      */
     public void createResourceToIndex(IndexResource indexResource) {
         LOG.info("Indexing: {}", indexResource.getId());
-        client.putToIndex(OPEN_SEARCH_INDEX_RESOURCE, indexResource);
+        write(OPEN_SEARCH_INDEX_RESOURCE, index -> client.putToIndex(index, indexResource));
+        uriResolutionIndex.invalidate(indexResource.getId());
     }
 
     /**
@@ -263,12 +397,14 @@ public class IndexService extends OpenSearchInitializer {
      */
     public void updateResourceToIndex(IndexResource indexResource) {
         LOG.info("Updating index for: {}", indexResource.getId());
-        client.updateToIndex(OPEN_SEARCH_INDEX_RESOURCE, indexResource);
+        write(OPEN_SEARCH_INDEX_RESOURCE, index -> client.updateToIndex(index, indexResource));
+        uriResolutionIndex.invalidate(indexResource.getId());
     }
 
     public void deleteResourceFromIndex(String id){
         LOG.info("Removing index for: {}", id);
-        client.removeFromIndex(OPEN_SEARCH_INDEX_RESOURCE, id);
+        write(OPEN_SEARCH_INDEX_RESOURCE, index -> client.removeFromIndex(index, id));
+        uriResolutionIndex.invalidate(id);
     }
 
     /**
@@ -294,16 +430,63 @@ public class IndexService extends OpenSearchInitializer {
                 .build()
                 .toQuery();
 
-        client.removeFromIndexWithQuery(OPEN_SEARCH_INDEX_RESOURCE, finalQuery);
+        write(OPEN_SEARCH_INDEX_RESOURCE, index -> client.removeFromIndexWithQuery(index, finalQuery));
+        uriResolutionIndex.invalidateModel(modelUri);
     }
 
     public <T extends IndexBase> void bulkInsert(String index, List<T> documents) {
-        client.bulkInsert(index, documents);
+        write(index, target -> client.bulkInsert(target, documents));
+    }
+
+    /**
+     * Write to the index. If the index is being rebuilt, the write is also recorded
+     * and replayed to the new index before the alias is swapped to it.
+     *
+     * @param alias index name used by the application
+     * @param operation writes to the given index
+     */
+    private void write(String alias, Consumer<String> operation) {
+        aliasSwapLock.readLock().lock();
+        try {
+            operation.accept(alias);
+            var pending = pendingWrites.get(alias);
+            if (pending != null) {
+                pending.add(operation);
+            }
+        } finally {
+            aliasSwapLock.readLock().unlock();
+        }
+    }
+
+    private void replayWrites(String alias, String newIndex) {
+        var pending = pendingWrites.get(alias);
+        Consumer<String> operation;
+        var count = 0;
+        while ((operation = pending.poll()) != null) {
+            try {
+                operation.accept(newIndex);
+                count++;
+            } catch (Exception e) {
+                LOG.warn("Could not replay write to index {}", newIndex, e);
+            }
+        }
+        if (count > 0) {
+            LOG.info("Replayed {} writes made during reindexing to {}", count, newIndex);
+        }
     }
 
     public void reindex(String index){
         check(authorizationManager.hasRightToDropDatabase());
 
+        if (aliasReindex) {
+            var indexes = index == null
+                    ? List.of(OPEN_SEARCH_INDEX_MODEL, OPEN_SEARCH_INDEX_RESOURCE, OPEN_SEARCH_INDEX_EXTERNAL)
+                    : List.of(index);
+            indexes.forEach(this::reindexWithAlias);
+            auditService.log(AuditService.ActionType.UPDATE, index == null ? "all_indexes" : index, userProvider.getUser());
+            return;
+        }
+
         var mappings = new HashMap<String, TypeMapping>();
 
         if(index == null){
@@ -333,6 +516,105 @@ public class IndexService extends OpenSearchInitializer {
         auditService.log(AuditService.ActionType.UPDATE, index, userProvider.getUser());
     }
 
+    /**
+     * Builds a new timestamped index and swaps the alias to it once it is loaded, so that searches use
+     * the old index until the new one is complete. Runs in the caller's thread.
+     * Writes made by this instance during the rebuild go to the old index and are replayed to the new one
+     * before the swap, so they are not lost.
+     * If an index with the alias name exists (created before aliases were used), it is replaced atomically.
+     *
+     * @param alias index name used by the application
+     */
+    private void reindexWithAlias(String alias) {
+        TypeMapping mappings;
+        Consumer<String> loader;
+        switch (alias) {
+            case OPEN_SEARCH_INDEX_MODEL -> {
+                mappings = getModelMappings();
+                loader = this::initModelIndex;
+            }
+            case OPEN_SEARCH_INDEX_RESOURCE -> {
+                mappings = getResourceMappings();
+                loader = this::initResourceIndex;
+            }
+            case OPEN_SEARCH_INDEX_EXTERNAL -> {
+                mappings = getExternalResourceMappings();
+                loader = this::initExternalResourceIndex;
+            }
+            default -> throw new IllegalArgumentException("Given value not allowed");
+        }
+
+        if (pendingWrites.putIfAbsent(alias, new ConcurrentLinkedQueue<>()) != null) {
+            throw new OpenSearchException("Reindexing already in progress", alias);
+        }
+        var newIndex = alias + "_" + LocalDateTime.now().format(INDEX_TIMESTAMP_FORMAT);
+        var indices = openSearchClient.indices();
+        try {
+            LOG.info("Reindexing {} to {}", alias, newIndex);
+            // disable refresh and replication during bulk load
+            indices.create(c -> c
+                    .index(newIndex)
+                    .mappings(mappings)
+                    .settings(s -> s
+                            .refreshInterval(t -> t.time("-1"))
+                            .numberOfReplicas("0")));
+        } catch (IOException e) {
+            pendingWrites.remove(alias);
+            throw new OpenSearchException("Could not create index " + newIndex + ": " + e.getMessage(), alias);
+        }
+
+        try {
+            loader.accept(newIndex);
+            // replay most of the writes before blocking writes for the swap
+            replayWrites(alias, newIndex);
+
+            indices.putSettings(p -> p
+                    .index(newIndex)
+                    .settings(s -> s
+                            .refreshInterval(t -> t.time(INDEX_REFRESH_INTERVAL))
+                            .numberOfReplicas(reindexReplicas)));
+            indices.refresh(r -> r.index(newIndex));
+
+            var oldIndexes = new ArrayList<String>();
+            var aliasExists = indices.existsAlias(e -> e.name(alias)).value();
+            if (aliasExists) {
+                oldIndexes.addAll(indices.getAlias(g -> g.name(alias)).result().keySet());
+            }
+            var legacyIndexExists = !aliasExists && indices.exists(e -> e.index(alias)).value();
+
+            aliasSwapLock.writeLock().lock();
+            try {
+                replayWrites(alias, newIndex);
+                indices.refresh(r -> r.index(newIndex));
+                indices.updateAliases(u -> {
+                    u.actions(a -> a.add(add -> add.index(newIndex).alias(alias)));
+                    oldIndexes.forEach(old -> u.actions(a -> a.remove(r -> r.index(old).alias(alias))));
+                    if (legacyIndexExists) {
+                        u.actions(a -> a.removeIndex(r -> r.index(alias)));
+                    }
+                    return u;
+                });
+                pendingWrites.remove(alias);
+            } finally {
+                aliasSwapLock.writeLock().unlock();
+            }
+            LOG.info("Alias {} points to {}", alias, newIndex);
+
+            if (!oldIndexes.isEmpty()) {
+                indices.delete(d -> d.index(oldIndexes));
+            }
+        } catch (Exception e) {
+            pendingWrites.remove(alias);
+            LOG.error("Reindexing {} failed, removing index {}", alias, newIndex, e);
+            try {
+                indices.delete(d -> d.index(newIndex));
+            } catch (Exception ex) {
+                LOG.warn("Could not remove index {}", newIndex, ex);
+            }
+            throw new OpenSearchException("Reindexing failed: " + e.getMessage(), alias);
+        }
+    }
+
     private void reindexAll() {
         InitIndexesFunction fn = this::initDataModelIndexes;
 
@@ -19,7 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.topbraid.shacl.vocabulary.SH;
 
-import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Map;
 
@@ -60,7 +60,7 @@ public class JSONSchemaBuilder {
     private JSONSchemaBuilder() {
     }
 
-    public static void export(StringWriter stringWriter, Model model, String language) {
+    public static void export(Writer writer, Model model, String language) {
         var modelSubj = model.listSubjectsWithProperty(RDF.type, SuomiMeta.ApplicationProfile);
         if (!modelSubj.hasNext()) {
             logger.error("No model found");
@@ -88,7 +88,7 @@ public class JSONSchemaBuilder {
         });
 
         var jsonSchema = new JSONObject(schemaBuilder.build().toString());
-        stringWriter.write(jsonSchema.toString(4));
+        jsonSchema.write(writer, 4, 0);
     }
 
     private static ObjectSchema getNodeShapeSchema(Resource nodeShape, Model model, String language) {
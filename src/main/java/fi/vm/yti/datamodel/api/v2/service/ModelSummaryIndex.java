@@ -0,0 +1,71 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexModel;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory summaries (label, prefix, status, type, groups, version) of all data models by id.
+ * Used for adding data model information to resource search results without querying the model index.
+ * Kept current by IndexService when models are indexed and reloaded periodically, since
+ * changes made by other instances are not seen otherwise.
+ */
+@Component
+public class ModelSummaryIndex {
+
+    private volatile Map<String, IndexModel> summaries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Replace all summaries
+     * @param models all data models
+     */
+    public void load(Collection<IndexModel> models) {
+        var loaded = new ConcurrentHashMap<String, IndexModel>();
+        models.forEach(model -> loaded.put(model.getId(), toSummary(model)));
+        summaries = loaded;
+        this.loaded = true;
+    }
+
+    /**
+     * @return true if summaries of all data models have been loaded
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void put(IndexModel model) {
+        if (model != null && model.getId() != null) {
+            summaries.put(model.getId(), toSummary(model));
+        }
+    }
+
+    public void remove(String id) {
+        summaries.remove(id);
+    }
+
+    /**
+     * @return unmodifiable view of the summaries by model id
+     */
+    public Map<String, IndexModel> getSummaries() {
+        return Collections.unmodifiableMap(summaries);
+    }
+
+    private static IndexModel toSummary(IndexModel model) {
+        var summary = new IndexModel();
+        summary.setId(model.getId());
+        summary.setUri(model.getUri());
+        summary.setLabel(model.getLabel());
+        summary.setPrefix(model.getPrefix());
+        summary.setStatus(model.getStatus());
+        summary.setType(model.getType());
+        summary.setIsPartOf(model.getIsPartOf());
+        summary.setVersion(model.getVersion());
+        summary.setVersionIri(model.getVersionIri());
+        return summary;
+    }
+}
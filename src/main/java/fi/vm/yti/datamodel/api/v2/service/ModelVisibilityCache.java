@@ -0,0 +1,56 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import fi.vm.yti.common.enums.GraphType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Ids of the data models visible to users of the given organizations, used for limiting resource searches.
+ * Cleared when models are added to, updated in or removed from the index (e.g. status changes).
+ * Other instances don't clear the cache, so the entries expire after a short time.
+ */
+@Component
+public class ModelVisibilityCache {
+
+    private final Cache<VisibilityKey, Set<String>> cache;
+
+    public ModelVisibilityCache(@Value("${search.cache.visibleModels.expiration:60}") Long expireTime) {
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireTime, TimeUnit.SECONDS)
+                .maximumSize(1000)
+                .build();
+    }
+
+    /**
+     * Get visible model ids from the cache or load them with the given loader
+     * @param organizations organizations of the user
+     * @param type limit to model type, null for all types
+     * @param loader loads model ids from the index
+     * @return model ids
+     */
+    public Set<String> get(Set<UUID> organizations, GraphType type, Supplier<Set<String>> loader) {
+        try {
+            return cache.get(new VisibilityKey(Set.copyOf(organizations), type), () -> Set.copyOf(loader.get()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Error loading visible models", e.getCause());
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private record VisibilityKey(Set<UUID> organizations, GraphType type) {}
+}
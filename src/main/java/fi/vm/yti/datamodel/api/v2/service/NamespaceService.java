@@ -55,9 +55,16 @@ public class NamespaceService {
             "http://data.europa.eu/949/", "https://data-interop.era.europa.eu/era-vocabulary/ontology.ttl"
     );
 
+    /**
+     * Resolve default namespaces, which are not resolved yet. Already resolved namespaces
+     * can be updated with the resolve endpoint.
+     */
     public void resolveDefaultNamespaces() {
         if(resolveDefault){
-            DEFAULT_NAMESPACES.forEach((prefix, uri) -> namespaceResolver.resolveNamespace(uri));
+            var resolved = getResolvedNamespaces();
+            DEFAULT_NAMESPACES.values().stream()
+                    .filter(uri -> !resolved.contains(uri) && !resolved.contains(uri + "/"))
+                    .forEach(namespaceResolver::resolveNamespace);
         }
     }
 
@@ -1,5 +1,6 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import fi.vm.yti.common.Constants;
 import fi.vm.yti.common.properties.SuomiMeta;
 import fi.vm.yti.common.util.MapperUtils;
@@ -26,7 +27,8 @@ import org.apache.jena.vocabulary.RDFS;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.topbraid.shacl.vocabulary.SH;
 
-import java.io.StringWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -77,7 +79,7 @@ public class OpenAPIBuilder {
             Map.entry("http://www.w3.org/2001/XMLSchema#unsignedShort", INTEGER)
     );
 
-    public static void export(StringWriter stringWriter, Model model, String language) {
+    public static void export(Writer writer, Model model, String language) throws IOException {
         var modelSubj = model.listSubjectsWithProperty(RDF.type, SuomiMeta.ApplicationProfile);
         if (!modelSubj.hasNext()) {
             return;
@@ -129,7 +131,10 @@ public class OpenAPIBuilder {
             openAPI.path(path.split("\\?")[0], pathItem);
         });
 
-        stringWriter.write(Json.pretty(openAPI));
+        // write directly to the target, keep it open so that the caller can continue using the stream
+        Json.pretty()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(writer, openAPI);
     }
 
     private static PathItem getPathItem(Resource pathResource, String language) {
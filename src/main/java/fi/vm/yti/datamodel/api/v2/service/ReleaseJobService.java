@@ -0,0 +1,453 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import fi.vm.yti.common.exception.ResourceNotFoundException;
+import fi.vm.yti.datamodel.api.v2.dto.ReleaseStatusDTO;
+import fi.vm.yti.datamodel.api.v2.dto.ReleaseStatusDTO.JobStatus;
+import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import jakarta.annotation.PreDestroy;
+import org.apache.jena.arq.querybuilder.AskBuilder;
+import org.apache.jena.arq.querybuilder.ConstructBuilder;
+import org.apache.jena.arq.querybuilder.UpdateBuilder;
+import org.apache.jena.arq.querybuilder.WhereBuilder;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.update.UpdateRequest;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs the stages done after a data model version has been written (indexing, reference updates, exports,
+ * notifications) in the background. Stages run in parallel unless a stage is set to run after another one,
+ * and a failed stage is retried before it is marked as failed.
+ * <p>
+ * State of the jobs is stored to Fuseki, so the status is available from all instances. The instance running
+ * a job updates its heartbeat. If the instance stops before the job has finished (e.g. during a deployment),
+ * another instance claims the job after the lease has expired and runs the stages not finished yet.
+ */
+@Service
+public class ReleaseJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReleaseJobService.class);
+
+    static final String RELEASE_JOB_GRAPH = "urn:yti:releasejobs";
+
+    private static final String NS = "urn:yti:releasejob:";
+    private static final Resource JOB = ResourceFactory.createResource(NS + "Job");
+    private static final Property STAGE = ResourceFactory.createProperty(NS, "stage");
+    private static final Property NAME = ResourceFactory.createProperty(NS, "name");
+    private static final Property ORDER = ResourceFactory.createProperty(NS, "order");
+    private static final Property STATUS = ResourceFactory.createProperty(NS, "status");
+    private static final Property ERROR = ResourceFactory.createProperty(NS, "error");
+    private static final Property OWNER = ResourceFactory.createProperty(NS, "owner");
+    private static final Property HEARTBEAT = ResourceFactory.createProperty(NS, "heartbeat");
+    private static final Property STARTED = ResourceFactory.createProperty(NS, "started");
+    private static final Property FINISHED = ResourceFactory.createProperty(NS, "finished");
+
+    private final CoreRepository coreRepository;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final int retries;
+    private final long retryDelay;
+    private final long expireMillis;
+    private final long leaseMillis;
+    private final long shutdownTimeout;
+
+    // jobs run by this instance
+    private final Cache<String, ReleaseJob> jobs;
+    private final ExecutorService executor;
+    private volatile boolean stopping = false;
+
+    public ReleaseJobService(CoreRepository coreRepository,
+                             @Value("${release.stage.retries:3}") Integer retries,
+                             @Value("${release.stage.retryDelay:1000}") Long retryDelay,
+                             @Value("${release.job.threads:4}") Integer threads,
+                             @Value("${release.job.expiration:86400}") Long expireTime,
+                             @Value("${release.job.lease:300}") Long leaseTime,
+                             @Value("${release.job.shutdownTimeout:60}") Long shutdownTimeout) {
+        this.coreRepository = coreRepository;
+        this.retries = retries;
+        this.retryDelay = retryDelay;
+        this.expireMillis = expireTime * 1000;
+        this.leaseMillis = leaseTime * 1000;
+        this.shutdownTimeout = shutdownTimeout;
+        this.jobs = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireTime, TimeUnit.SECONDS)
+                .build();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            var thread = new Thread(r, "release-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Let the running stages finish. Stages not started before the timeout are left to another instance,
+     * the lease of the unfinished jobs is released so that they are resumed without waiting for it to expire.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeout, TimeUnit.SECONDS)) {
+                LOG.warn("Release stages did not finish in {} seconds", shutdownTimeout);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        jobs.asMap().values().stream()
+                .filter(job -> job.finished == null)
+                .forEach(job -> {
+                    LOG.info("Release job {} not finished, it is resumed by another instance", job.uri.getGraphURI());
+                    save(job, 0);
+                });
+    }
+
+    /**
+     * Start a release job
+     * @param uri uri of the released version
+     * @param stages stages of the job
+     * @return future completed when all stages are finished
+     */
+    public CompletableFuture<Void> submit(DataModelURI uri, List<ReleaseStage> stages) {
+        var job = new ReleaseJob(uri, stages.stream().map(ReleaseStage::name).toList(), new Date());
+        return start(job, stages);
+    }
+
+    /**
+     * Get status of the release job
+     * @param uri uri of the released version
+     * @return status
+     * @throws ResourceNotFoundException if there is no job for the version
+     */
+    public ReleaseStatusDTO getStatus(DataModelURI uri) {
+        var job = jobs.getIfPresent(uri.getGraphURI());
+        if (job == null) {
+            job = ReleaseJob.fromModel(loadJobs(uri.getGraphURI()), uri.getGraphURI());
+        }
+        if (job == null) {
+            throw new ResourceNotFoundException(uri.getGraphURI());
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Wait until the release job has finished, returns immediately if the job is not run by this instance
+     * @param uri uri of the released version
+     */
+    public void await(DataModelURI uri) {
+        var job = jobs.getIfPresent(uri.getGraphURI());
+        if (job != null) {
+            job.completion.join();
+        }
+    }
+
+    /**
+     * Update the heartbeat of the jobs run by this instance, resume jobs whose lease has expired
+     * and remove expired jobs. Called periodically.
+     * @param stageFactory creates the stages of the release job of the given version
+     */
+    public void resumeInterrupted(Function<DataModelURI, List<ReleaseStage>> stageFactory) {
+        if (stopping) {
+            return;
+        }
+        jobs.asMap().values().stream()
+                .filter(job -> job.finished == null)
+                .forEach(this::save);
+
+        var now = System.currentTimeMillis();
+        var model = loadJobs(null);
+        model.listSubjectsWithProperty(RDF.type, JOB).toList().forEach(resource -> {
+            var graphURI = resource.getURI();
+            var job = ReleaseJob.fromModel(model, graphURI);
+            var heartbeat = resource.getRequiredProperty(HEARTBEAT).getLiteral();
+            // jobs that could not be finished (e.g. the version has been removed) are given up after they expire
+            var updated = job.finished != null ? job.finished : job.started;
+            try {
+                if (now - updated.getTime() > expireMillis) {
+                    coreRepository.queryUpdate(RELEASE_JOB_GRAPH, deleteJob(graphURI));
+                } else if (job.finished == null && now - heartbeat.getLong() > leaseMillis && claim(graphURI, heartbeat)) {
+                    LOG.info("Resuming release job {}", graphURI);
+                    start(job, stageFactory.apply(job.uri));
+                }
+            } catch (Exception e) {
+                LOG.warn("Could not resume release job {}", graphURI, e);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> start(ReleaseJob job, List<ReleaseStage> stages) {
+        jobs.put(job.uri.getGraphURI(), job);
+        save(job);
+
+        var futures = new HashMap<String, CompletableFuture<Void>>();
+        for (var stage : stages) {
+            // finished before the job was resumed
+            if (job.isFinished(stage.name())) {
+                continue;
+            }
+            var previous = stage.after() != null ? futures.get(stage.after()) : null;
+            var future = previous != null
+                    ? previous.thenRunAsync(() -> runStage(job, stage), executor)
+                    : CompletableFuture.runAsync(() -> runStage(job, stage), executor);
+            futures.put(stage.name(), future);
+        }
+        job.completion = CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                .whenComplete((result, e) -> finish(job));
+        return job.completion;
+    }
+
+    private void runStage(ReleaseJob job, ReleaseStage stage) {
+        for (int attempt = 1; ; attempt++) {
+            job.stages.put(stage.name(), JobStatus.RUNNING);
+            save(job);
+            try {
+                stage.action().run();
+                job.stages.put(stage.name(), JobStatus.DONE);
+                save(job);
+                return;
+            } catch (Exception e) {
+                if (stopping) {
+                    // left as running, run again when the job is resumed
+                    LOG.warn("Release stage {} of {} interrupted", stage.name(), job.uri.getGraphURI(), e);
+                    return;
+                }
+                if (attempt > retries) {
+                    LOG.error("Release stage {} of {} failed", stage.name(), job.uri.getGraphURI(), e);
+                    job.fail(stage.name(), e);
+                    save(job);
+                    return;
+                }
+                LOG.warn("Release stage {} of {} failed, retrying ({}/{})",
+                        stage.name(), job.uri.getGraphURI(), attempt, retries, e);
+            }
+            try {
+                Thread.sleep(retryDelay * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void finish(ReleaseJob job) {
+        if (job.stageNames.stream().allMatch(job::isFinished)) {
+            job.finished = new Date();
+            save(job);
+        }
+    }
+
+    private void save(ReleaseJob job) {
+        save(job, System.currentTimeMillis());
+    }
+
+    /**
+     * Replace the stored state of the job
+     * @param job job
+     * @param heartbeat heartbeat time, 0 releases the lease
+     */
+    private void save(ReleaseJob job, long heartbeat) {
+        var graph = NodeFactory.createURI(RELEASE_JOB_GRAPH);
+        // state is read and written in one step, so that an older state doesn't replace a newer one
+        synchronized (job) {
+            try {
+                var insert = new UpdateBuilder();
+                job.toModel(instanceId, heartbeat).listStatements().forEachRemaining(s ->
+                        insert.addInsert(graph, s.getSubject(), s.getPredicate(), s.getObject()));
+                var request = new UpdateRequest()
+                        .add(deleteJob(job.uri.getGraphURI()).getOperations().get(0))
+                        .add(insert.build());
+                coreRepository.queryUpdate(RELEASE_JOB_GRAPH, request);
+            } catch (Exception e) {
+                LOG.warn("Could not save state of release job {}", job.uri.getGraphURI(), e);
+            }
+        }
+    }
+
+    /**
+     * Take over a job from another instance. The heartbeat is replaced only if it has not been updated
+     * after it was read, so only one instance can claim the job.
+     * @return true if this instance owns the job
+     */
+    private boolean claim(String graphURI, Literal heartbeat) {
+        var graph = NodeFactory.createURI(RELEASE_JOB_GRAPH);
+        var job = NodeFactory.createURI(graphURI);
+        var owner = ResourceFactory.createStringLiteral(instanceId);
+        var builder = new UpdateBuilder()
+                .addDelete(graph, job, HEARTBEAT, heartbeat)
+                .addDelete(graph, job, OWNER, "?owner")
+                .addInsert(graph, job, HEARTBEAT, ResourceFactory.createTypedLiteral(System.currentTimeMillis()))
+                .addInsert(graph, job, OWNER, owner)
+                .addWhere(new WhereBuilder()
+                        .addGraph(graph, new WhereBuilder()
+                                .addWhere(job, HEARTBEAT, heartbeat)
+                                .addWhere(job, OWNER, "?owner")));
+        coreRepository.queryUpdate(RELEASE_JOB_GRAPH, builder.buildRequest());
+        return coreRepository.queryAsk(new AskBuilder().addGraph(graph, job, OWNER, owner).build());
+    }
+
+    /**
+     * @param graphURI uri of the released version, null for all jobs
+     */
+    private Model loadJobs(String graphURI) {
+        var builder = new ConstructBuilder()
+                .addConstruct("?s", "?p", "?o")
+                .addGraph(NodeFactory.createURI(RELEASE_JOB_GRAPH), "?s", "?p", "?o");
+        if (graphURI != null) {
+            var exprFactory = builder.getExprFactory();
+            builder.addFilter(exprFactory.strstarts(exprFactory.str("?s"), graphURI));
+        }
+        return coreRepository.queryConstruct(builder.build());
+    }
+
+    // job and its stages, stage uris start with the job uri
+    private static UpdateRequest deleteJob(String graphURI) {
+        var graph = NodeFactory.createURI(RELEASE_JOB_GRAPH);
+        var builder = new UpdateBuilder();
+        var exprFactory = builder.getExprFactory();
+        builder.addDelete(graph, "?s", "?p", "?o")
+                .addWhere(new WhereBuilder()
+                        .addGraph(graph, "?s", "?p", "?o"))
+                .addFilter(exprFactory.strstarts(exprFactory.str("?s"), graphURI));
+        return builder.buildRequest();
+    }
+
+    /**
+     * Stage of a release job
+     * @param name name of the stage, shown in the status
+     * @param after name of the stage that has to finish before this one is started, null if none
+     * @param action stage action, must be safe to run again if it fails or the job is resumed
+     */
+    public record ReleaseStage(String name, String after, Runnable action) {
+
+        public static ReleaseStage of(String name, Runnable action) {
+            return new ReleaseStage(name, null, action);
+        }
+    }
+
+    private static class ReleaseJob {
+        private final DataModelURI uri;
+        private final List<String> stageNames;
+        private final Map<String, JobStatus> stages = new ConcurrentHashMap<>();
+        private final Map<String, String> errors = new ConcurrentHashMap<>();
+        private final Date started;
+        private volatile Date finished;
+        private volatile CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+
+        ReleaseJob(DataModelURI uri, List<String> stageNames, Date started) {
+            this.uri = uri;
+            this.stageNames = stageNames;
+            this.started = started;
+            stageNames.forEach(name -> this.stages.put(name, JobStatus.PENDING));
+        }
+
+        void fail(String stage, Exception e) {
+            stages.put(stage, JobStatus.FAILED);
+            errors.put(stage, String.valueOf(e.getMessage()));
+        }
+
+        boolean isFinished(String stage) {
+            var status = stages.get(stage);
+            return status == JobStatus.DONE || status == JobStatus.FAILED;
+        }
+
+        Model toModel(String owner, long heartbeat) {
+            var model = ModelFactory.createDefaultModel();
+            var job = model.createResource(uri.getGraphURI())
+                    .addProperty(RDF.type, JOB)
+                    .addProperty(OWNER, owner)
+                    .addLiteral(HEARTBEAT, heartbeat)
+                    .addLiteral(STARTED, started.getTime());
+            if (finished != null) {
+                job.addLiteral(FINISHED, finished.getTime());
+            }
+            for (int i = 0; i < stageNames.size(); i++) {
+                var name = stageNames.get(i);
+                var stage = model.createResource(uri.getGraphURI() + "#" + name)
+                        .addProperty(NAME, name)
+                        .addLiteral(ORDER, (long) i)
+                        .addProperty(STATUS, stages.get(name).name());
+                if (errors.containsKey(name)) {
+                    stage.addProperty(ERROR, errors.get(name));
+                }
+                job.addProperty(STAGE, stage);
+            }
+            return model;
+        }
+
+        /**
+         * @return job stored to the model, null if not found
+         */
+        static ReleaseJob fromModel(Model model, String graphURI) {
+            var resource = model.getResource(graphURI);
+            if (!resource.hasProperty(RDF.type, JOB)) {
+                return null;
+            }
+            var stageResources = resource.listProperties(STAGE)
+                    .mapWith(Statement::getResource)
+                    .toList();
+            stageResources.sort(Comparator.comparingLong(s -> s.getRequiredProperty(ORDER).getLong()));
+
+            var job = new ReleaseJob(DataModelURI.Factory.fromURI(graphURI),
+                    stageResources.stream().map(s -> s.getRequiredProperty(NAME).getString()).toList(),
+                    new Date(resource.getRequiredProperty(STARTED).getLong()));
+            stageResources.forEach(stage -> {
+                var name = stage.getRequiredProperty(NAME).getString();
+                job.stages.put(name, JobStatus.valueOf(stage.getRequiredProperty(STATUS).getString()));
+                if (stage.hasProperty(ERROR)) {
+                    job.errors.put(name, stage.getRequiredProperty(ERROR).getString());
+                }
+            });
+            if (resource.hasProperty(FINISHED)) {
+                job.finished = new Date(resource.getRequiredProperty(FINISHED).getLong());
+            }
+            return job;
+        }
+
+        ReleaseStatusDTO toDTO() {
+            var stageStatus = new LinkedHashMap<String, JobStatus>();
+            stageNames.forEach(name -> stageStatus.put(name, stages.get(name)));
+
+            var dto = new ReleaseStatusDTO();
+            dto.setPrefix(uri.getModelId());
+            dto.setVersion(uri.getVersion());
+            dto.setStages(stageStatus);
+            dto.setErrors(new HashMap<>(errors));
+            dto.setStarted(started);
+            dto.setFinished(finished);
+            if (finished == null) {
+                dto.setStatus(JobStatus.RUNNING);
+            } else {
+                dto.setStatus(stageStatus.containsValue(JobStatus.FAILED) ? JobStatus.FAILED : JobStatus.DONE);
+            }
+            return dto;
+        }
+    }
+}
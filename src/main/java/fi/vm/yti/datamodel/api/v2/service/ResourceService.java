@@ -1,5 +1,7 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import fi.vm.yti.common.Constants;
 import fi.vm.yti.common.exception.MappingError;
 import fi.vm.yti.common.service.AuditService;
@@ -16,25 +18,26 @@ import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelUtils;
 import fi.vm.yti.security.AuthenticatedUserProvider;
 import org.apache.jena.arq.querybuilder.AskBuilder;
+import org.apache.jena.arq.querybuilder.ConstructBuilder;
 import org.apache.jena.arq.querybuilder.ExprFactory;
 import org.apache.jena.arq.querybuilder.SelectBuilder;
 import org.apache.jena.arq.querybuilder.WhereBuilder;
 import org.apache.jena.graph.NodeFactory;
-import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.topbraid.shacl.vocabulary.SH;
 
 import javax.annotation.Nonnull;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static fi.vm.yti.security.AuthorizationException.check;
 
@@ -50,6 +53,12 @@ public class ResourceService extends BaseResourceService {
     private final CodeListService codeListService;
     private final AuthenticatedUserProvider userProvider;
 
+    /**
+     * Descriptions of external resources by URI. External vocabularies are updated rarely,
+     * so the descriptions are not invalidated when the imports dataset is modified.
+     */
+    private final Cache<String, Model> externalResourceCache;
+
     @Autowired
     public ResourceService(CoreRepository coreRepository,
                            ImportsRepository importsRepository,
@@ -58,8 +67,11 @@ public class ResourceService extends BaseResourceService {
                            TerminologyService terminologyService,
                            CodeListService codeListService,
                            AuthenticatedUserProvider userProvider,
-                           IndexService indexService){
-        super(coreRepository, importsRepository, authorizationManager, indexService, AUDIT_SERVICE, userProvider);
+                           IndexService indexService,
+                           BatchQueryExecutor batchQueryExecutor,
+                           @Value("${fuseki.cache.external.expiration:3600}") Long externalCacheExpireTime){
+        super(coreRepository, importsRepository, authorizationManager, indexService, AUDIT_SERVICE, userProvider,
+                batchQueryExecutor);
         this.coreRepository = coreRepository;
         this.importsRepository = importsRepository;
         this.authorizationManager = authorizationManager;
@@ -67,6 +79,10 @@ public class ResourceService extends BaseResourceService {
         this.terminologyService = terminologyService;
         this.codeListService = codeListService;
         this.userProvider = userProvider;
+        this.externalResourceCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(externalCacheExpireTime, TimeUnit.SECONDS)
+                .maximumSize(1000)
+                .build();
     }
 
     public ResourceInfoBaseDTO get(String prefix, String version, String identifier) {
@@ -99,13 +115,30 @@ public class ResourceService extends BaseResourceService {
     }
 
     public ExternalResourceDTO getExternal(String uri){
-        var namespace = NodeFactory.createURI(uri).getNameSpace();
-        var model = importsRepository.fetch(namespace);
-        var resource = model.getResource(uri);
-        if (!model.contains(resource, null, (RDFNode) null)) {
-            throw new ResourceNotFoundException(uri);
+        var model = externalResourceCache.getIfPresent(uri);
+        if (model == null) {
+            model = fetchExternalResource(uri);
+            if (model.isEmpty()) {
+                throw new ResourceNotFoundException(uri);
+            }
+            externalResourceCache.put(uri, model);
         }
-        return ResourceMapper.mapToExternalResource(resource);
+        return ResourceMapper.mapToExternalResource(model.getResource(uri));
+    }
+
+    /**
+     * Fetch only the statements of the given resource from the external vocabulary graph
+     * instead of the whole vocabulary
+     * @param uri resource uri
+     * @return model containing the statements, empty if the resource does not exist
+     */
+    private Model fetchExternalResource(String uri) {
+        var namespace = NodeFactory.createURI(uri).getNameSpace();
+        var resource = NodeFactory.createURI(uri);
+        var builder = new ConstructBuilder()
+                .addConstruct(resource, "?p", "?o")
+                .addGraph(NodeFactory.createURI(namespace), resource, "?p", "?o");
+        return importsRepository.queryConstruct(builder.build());
     }
 
     public URI create(String prefix, BaseDTO dto, @Nonnull ResourceType resourceType, boolean applicationProfile) throws URISyntaxException {
@@ -220,27 +253,58 @@ public class ResourceService extends BaseResourceService {
     }
 
     /**
-     * Check if resource uri is one of given types
-     * @param resourceUri Resource uri
-     * @param types List of types to check
-     * @return true if resource is one of types
+     * Find rdf:types of the given resources. Resources in data models and in external namespaces
+     * are resolved with a single query per dataset.
+     * @param resourceURIs resource uris, data model resource uris may contain version
+     * @return type uris by resource uri, resources without types are not included
      */
-    public boolean checkIfResourceIsOneOfTypes(String resourceUri, List<Resource> types) {
-        var dataModelURI = DataModelURI.Factory.fromURI(resourceUri);
-
-        var uri = NodeFactory.createURI(resourceUri);
-        var typeVar = "?type";
-        var askBuilder = new AskBuilder()
-                .addValueVar(typeVar, types.toArray());
+    public Map<String, Set<String>> findResourceTypes(Set<String> resourceURIs) {
+        var result = new HashMap<String, Set<String>>();
+        var graphs = new ArrayList<String>();
+        var coreResources = new ArrayList<String>();
+        var importResources = new ArrayList<String>();
+
+        // original uris by graph and resource uri without version
+        var coreURIs = new HashMap<List<String>, List<String>>();
+
+        resourceURIs.forEach(resourceURI -> {
+            var dataModelURI = DataModelURI.Factory.fromURI(resourceURI);
+            if (!dataModelURI.isDataModelURI()) {
+                importResources.add(resourceURI);
+            } else if (dataModelURI.getResourceURI() != null) {
+                var key = List.of(dataModelURI.getGraphURI(), dataModelURI.getResourceURI());
+                if (!coreURIs.containsKey(key)) {
+                    graphs.add(key.get(0));
+                    coreResources.add(key.get(1));
+                }
+                coreURIs.computeIfAbsent(key, k -> new ArrayList<>()).add(resourceURI);
+            }
+        });
+
+        if (!coreResources.isEmpty()) {
+            // graph and resource values are added as rows
+            var select = new SelectBuilder()
+                    .addVar("?g").addVar("?s").addVar("?type")
+                    .addValueVar("?g", graphs.stream().map(NodeFactory::createURI).toArray())
+                    .addValueVar("?s", coreResources.stream().map(NodeFactory::createURI).toArray())
+                    .addGraph("?g", "?s", RDF.type, "?type");
+            coreRepository.querySelect(select.build(), row -> {
+                var key = List.of(row.get("g").toString(), row.get("s").toString());
+                coreURIs.getOrDefault(key, List.of()).forEach(uri ->
+                        result.computeIfAbsent(uri, k -> new HashSet<>()).add(row.get("type").toString()));
+            });
+        }
 
-        if (!dataModelURI.isDataModelURI()) {
-            askBuilder.addWhere(uri, RDF.type, typeVar);
-            return importsRepository.queryAsk(askBuilder.build());
-        } else {
-            askBuilder.addWhere(NodeFactory.createURI(dataModelURI.getResourceURI()), RDF.type, typeVar);
-            askBuilder.from(dataModelURI.getGraphURI());
-            return coreRepository.queryAsk(askBuilder.build());
+        if (!importResources.isEmpty()) {
+            var select = new SelectBuilder()
+                    .addVar("?s").addVar("?type")
+                    .addValueVar("?s", importResources.stream().map(NodeFactory::createURI).toArray())
+                    .addWhere("?s", RDF.type, "?type");
+            importsRepository.querySelect(select.build(), row ->
+                    result.computeIfAbsent(row.get("s").toString(), k -> new HashSet<>())
+                            .add(row.get("type").toString()));
         }
+        return result;
     }
 
     public boolean checkActiveStatus(String prefix, String uri, String version) {
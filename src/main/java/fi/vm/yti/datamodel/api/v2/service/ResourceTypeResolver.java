@@ -0,0 +1,59 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import org.apache.jena.rdf.model.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves rdf:types of the resources referenced in a request. All references of a DTO can be
+ * resolved at once with {@link #resolve(Collection)}, and the types are kept for the rest of the request,
+ * so validators and services handling the same request don't query the same resources again.
+ */
+@Component
+@RequestScope
+public class ResourceTypeResolver {
+
+    private final ResourceService resourceService;
+
+    private final Map<String, Set<String>> resourceTypes = new ConcurrentHashMap<>();
+
+    public ResourceTypeResolver(ResourceService resourceService) {
+        this.resourceService = resourceService;
+    }
+
+    /**
+     * Resolve types of the resources not resolved earlier during the request
+     * @param resourceURIs resource uris, null and blank values are ignored
+     */
+    public void resolve(Collection<String> resourceURIs) {
+        var unresolved = resourceURIs.stream()
+                .filter(Objects::nonNull)
+                .filter(uri -> !uri.isBlank() && !resourceTypes.containsKey(uri))
+                .collect(Collectors.toSet());
+        if (unresolved.isEmpty()) {
+            return;
+        }
+        var types = resourceService.findResourceTypes(unresolved);
+        unresolved.forEach(uri -> resourceTypes.put(uri, types.getOrDefault(uri, Set.of())));
+    }
+
+    /**
+     * Check if resource is one of given types
+     * @param resourceURI resource uri
+     * @param types list of types to check
+     * @return true if resource is one of types
+     */
+    public boolean isOneOfTypes(String resourceURI, List<Resource> types) {
+        resolve(List.of(resourceURI));
+        var resolved = resourceTypes.getOrDefault(resourceURI, Set.of());
+        return types.stream().anyMatch(type -> resolved.contains(type.getURI()));
+    }
+}
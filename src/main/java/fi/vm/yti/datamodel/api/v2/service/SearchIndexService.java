@@ -7,7 +7,6 @@ import fi.vm.yti.common.opensearch.OpenSearchClientWrapper;
 import fi.vm.yti.common.opensearch.QueryFactoryUtils;
 import fi.vm.yti.common.opensearch.SearchResponseDTO;
 import fi.vm.yti.common.service.GroupManagementService;
-import fi.vm.yti.common.util.MapperUtils;
 import fi.vm.yti.datamodel.api.v2.dto.ModelConstants;
 import fi.vm.yti.datamodel.api.v2.dto.ModelSearchResultDTO;
 import fi.vm.yti.datamodel.api.v2.dto.ResourceType;
@@ -21,12 +20,11 @@ import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexResource;
 import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexResourceInfo;
 import fi.vm.yti.datamodel.api.v2.opensearch.queries.ModelQueryFactory;
 import fi.vm.yti.datamodel.api.v2.opensearch.queries.ResourceQueryFactory;
-import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import fi.vm.yti.security.YtiUser;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.OWL;
+import org.opensearch.client.opensearch.core.SearchRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -39,18 +37,24 @@ public class SearchIndexService {
     private final GroupManagementService groupManagementService;
     private final TerminologyService terminologyService;
     private final ResourceService resourceService;
-    private final CoreRepository coreRepository;
+    private final GraphCatalogService graphCatalogService;
+    private final ModelVisibilityCache modelVisibilityCache;
+    private final ModelSummaryIndex modelSummaryIndex;
 
     public SearchIndexService(OpenSearchClientWrapper client,
                               GroupManagementService groupManagementService,
                               TerminologyService terminologyService,
                               ResourceService resourceService,
-                              CoreRepository coreRepository) {
+                              GraphCatalogService graphCatalogService,
+                              ModelVisibilityCache modelVisibilityCache,
+                              ModelSummaryIndex modelSummaryIndex) {
         this.client = client;
         this.groupManagementService = groupManagementService;
         this.terminologyService = terminologyService;
         this.resourceService = resourceService;
-        this.coreRepository = coreRepository;
+        this.graphCatalogService = graphCatalogService;
+        this.modelVisibilityCache = modelVisibilityCache;
+        this.modelSummaryIndex = modelSummaryIndex;
     }
 
     /**
@@ -68,6 +72,24 @@ public class SearchIndexService {
         return client.search(resourceQuery, IndexResource.class);
     }
 
+    /**
+     * If the request contains a search string, search resources with the same string
+     * and add the models of the matching resources to the model search request
+     * @return matching resources grouped by model id (version iri or isDefinedBy)
+     */
+    private Map<String, List<IndexResource>> addMatchingResourceModels(ModelSearchRequest request) {
+        if (request.getQuery() == null || request.getQuery().isBlank()) {
+            return Map.of();
+        }
+        var resourcesByModel = this.getMatchingResources(request)
+                .getResponseObjects()
+                .stream()
+                .filter(r -> r.getVersionIri() != null || r.getIsDefinedBy() != null)
+                .collect(Collectors.groupingBy(r -> r.getVersionIri() != null ? r.getVersionIri() : r.getIsDefinedBy()));
+        request.setAdditionalModelIds(new HashSet<>(resourcesByModel.keySet()));
+        return resourcesByModel;
+    }
+
     /**
      * List counts of data model grouped by different search results
      * @return response containing counts for data models
@@ -77,18 +99,7 @@ public class SearchIndexService {
             searchRequest.setIncludeDraftFrom(groupManagementService.getOrganizationsForUser(user));
         }
 
-        // if we were provided a search string, let's search for resources with the same string
-        if (searchRequest.getQuery() != null && !searchRequest.getQuery().isBlank()) {
-            SearchResponseDTO<IndexResource> resources = this.getMatchingResources(searchRequest);
-
-            // now let's add those matching models to the model search request
-            searchRequest.setAdditionalModelIds(resources
-                    .getResponseObjects()
-                    .stream()
-                    .map(r -> (r.getVersionIri() != null ? r.getVersionIri() : r.getIsDefinedBy()))
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet()));
-        }
+        addMatchingResourceModels(searchRequest);
 
         var query = ModelQueryFactory.createModelCountQuery(searchRequest, user.isSuperuser());
         return ModelQueryFactory.parseModelCountResponse(client.searchResponse(query, IndexModel.class));
@@ -100,33 +111,15 @@ public class SearchIndexService {
             request.setIncludeDraftFrom(groupManagementService.getOrganizationsForUser(user));
         }
 
-        // if we were provided a search string, let's search for resources with the same string
-        SearchResponseDTO<IndexResource> resources = null;
-        if (request.getQuery() != null && !request.getQuery().isBlank()) {
-            resources = this.getMatchingResources(request);
-
-            // now let's add those matching models to the model search request
-            request.setAdditionalModelIds(resources
-                    .getResponseObjects()
-                    .stream()
-                    .map(r -> (r.getVersionIri() != null ? r.getVersionIri() : r.getIsDefinedBy()))
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet()));
-        }
+        var resourcesByModel = addMatchingResourceModels(request);
 
         var query = ModelQueryFactory.createModelQuery(request, user.isSuperuser());
         var models = client.search(query, ModelSearchResultDTO.class);
 
-        if (resources != null) {
-            for (var searchResult : models.getResponseObjects()) {
-                // link each matching resource to the model, if the versioned id matches
-                resources.getResponseObjects().stream()
-                        .filter(o -> (o.getVersionIri() != null ?
-                                o.getVersionIri() :
-                                o.getIsDefinedBy()).equals(searchResult.getId()))
-                        .forEach(searchResult::addMatchingResource);
-            }
-        }
+        // link each matching resource to the model, if the versioned id matches
+        models.getResponseObjects().forEach(searchResult ->
+                resourcesByModel.getOrDefault(searchResult.getId(), List.of())
+                        .forEach(searchResult::addMatchingResource));
 
         return models;
     }
@@ -135,18 +128,20 @@ public class SearchIndexService {
         Set<String> allowedDatamodels = new HashSet<>();
         if (!user.isSuperuser()) {
             var organizations = groupManagementService.getOrganizationsForUser(user);
-            var modelRequest = new ModelSearchRequest();
-            modelRequest.setPageSize(QueryFactoryUtils.INTERNAL_SEARCH_PAGE_SIZE);
-            modelRequest.setOrganizations(organizations);
-            modelRequest.setIncludeDraftFrom(organizations);
-            if (request.getLimitToModelType() != null) {
-                modelRequest.setType(Set.of(request.getLimitToModelType()));
-            }
-            var build = ModelQueryFactory.createModelQuery(modelRequest, user.isSuperuser());
-            var response = client.search(build, IndexModel.class);
-            allowedDatamodels = response.getResponseObjects().stream()
-                    .map(IndexBase::getId)
-                    .collect(Collectors.toSet());
+            allowedDatamodels = modelVisibilityCache.get(organizations, request.getLimitToModelType(), () -> {
+                var modelRequest = new ModelSearchRequest();
+                modelRequest.setPageSize(QueryFactoryUtils.INTERNAL_SEARCH_PAGE_SIZE);
+                modelRequest.setOrganizations(organizations);
+                modelRequest.setIncludeDraftFrom(organizations);
+                if (request.getLimitToModelType() != null) {
+                    modelRequest.setType(Set.of(request.getLimitToModelType()));
+                }
+                var build = ModelQueryFactory.createModelQuery(modelRequest, user.isSuperuser());
+                var response = client.search(build, IndexModel.class);
+                return response.getResponseObjects().stream()
+                        .map(IndexBase::getId)
+                        .collect(Collectors.toSet());
+            });
         }
 
         // Add resources from other models to the search request. Used in attribute / association lists
@@ -170,13 +165,7 @@ public class SearchIndexService {
 
     public SearchResponseDTO<IndexResourceInfo> searchInternalResourcesWithInfo(ResourceSearchRequest request, YtiUser user) {
         var dto = searchInternalResources(request, user);
-        var dataModels = new HashMap<String, IndexModel>();
-
-        var modelRequest = new ModelSearchRequest();
-        modelRequest.setPageSize(1000);
-
-        searchModels(modelRequest, user).getResponseObjects()
-                .forEach(o -> dataModels.put(o.getId(), o));
+        var dataModels = getModelSummaries(dto.getResponseObjects());
 
         var conceptURIs = dto.getResponseObjects().stream()
                 .map(IndexResource::getSubject)
@@ -192,6 +181,34 @@ public class SearchIndexService {
         return response;
     }
 
+    /**
+     * Get summaries of the data models of the given resources. Models missing from the in-memory
+     * summaries (e.g. created by another instance) are searched from the index.
+     * @param resources resources
+     * @return data models by id
+     */
+    private Map<String, IndexModel> getModelSummaries(List<IndexResource> resources) {
+        var summaries = modelSummaryIndex.getSummaries();
+        var missing = resources.stream()
+                .map(r -> r.getVersionIri() != null ? r.getVersionIri() : r.getIsDefinedBy())
+                .filter(id -> id != null && id.startsWith(Constants.DATA_MODEL_NAMESPACE) && !summaries.containsKey(id))
+                .collect(Collectors.toSet());
+        if (missing.isEmpty()) {
+            return summaries;
+        }
+        var query = new SearchRequest.Builder()
+                .index(IndexService.OPEN_SEARCH_INDEX_MODEL)
+                .size(missing.size())
+                .query(QueryFactoryUtils.termsQuery("id", missing))
+                .build();
+        var dataModels = new HashMap<>(summaries);
+        client.search(query, IndexModel.class).getResponseObjects().forEach(model -> {
+            modelSummaryIndex.put(model);
+            dataModels.put(model.getId(), model);
+        });
+        return dataModels;
+    }
+
     public SearchResponseDTO<IndexResource> findResourcesByURI(Set<String> resourceURIs, String versionURI) {
         return client.search(ResourceQueryFactory.createFindResourcesByURIQuery(resourceURIs, versionURI), IndexResource.class);
     }
@@ -256,12 +273,11 @@ public class SearchIndexService {
 
     private void getNamespacesFromModel(ResourceSearchRequest request, List<String> internalNamespaces, List<String> externalNamespaces){
         var uri = DataModelURI.Factory.fromURI(request.getLimitToDataModel());
-        var model = coreRepository.fetch(uri.getGraphURI());
-        var resource = model.getResource(uri.getModelURI());
-        var allNamespaces = new ArrayList<>(MapperUtils.arrayPropertyToList(resource, OWL.imports));
+        var metadata = graphCatalogService.get(uri.getGraphURI());
+        var allNamespaces = new ArrayList<>(metadata.imports());
 
         if (!GraphType.PROFILE.equals(request.getLimitToModelType())) {
-            allNamespaces.addAll(MapperUtils.arrayPropertyToList(resource, DCTerms.requires));
+            allNamespaces.addAll(metadata.requires());
 
             // resource from external models are searched by isDefinedBy property (include only if searching LIBRARY resources)
             externalNamespaces.addAll(allNamespaces.stream()
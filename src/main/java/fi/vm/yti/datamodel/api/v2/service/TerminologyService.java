@@ -1,5 +1,8 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import fi.vm.yti.common.Constants;
 import fi.vm.yti.common.exception.ResourceNotFoundException;
 import fi.vm.yti.common.properties.SuomiMeta;
@@ -17,18 +20,30 @@ import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.SKOS;
 import org.apache.jena.vocabulary.SKOSXL;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class TerminologyService {
 
+    // max number of concepts in a single VALUES query
+    private static final int CONCEPT_QUERY_BATCH_SIZE = 100;
+
     private final TerminologyRepository terminologyRepository;
+    private final Cache<String, ConceptDTO> conceptCache;
 
-    public TerminologyService(TerminologyRepository terminologyRepository) {
+    public TerminologyService(TerminologyRepository terminologyRepository,
+                              @Value("${fuseki.cache.concept.expiration:1800}") Long conceptCacheExpireTime) {
         this.terminologyRepository = terminologyRepository;
+        this.conceptCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(conceptCacheExpireTime, TimeUnit.SECONDS)
+                .maximumSize(10000)
+                .build();
     }
 
     public void resolveConcept(String uri) {
@@ -57,16 +72,57 @@ public class TerminologyService {
         return (var dto) -> dto.setSubject(getMappedConceptDTO(dto.getSubject()));
     }
 
-    public Consumer<SimpleResourceDTO> mapConceptToResource() {
-        return (var dto) -> dto.setConcept(getMappedConceptDTO(dto.getConcept()));
+    /**
+     * Map concepts of multiple resources. All concepts are fetched with as few queries as possible.
+     * @param resources resources with concept URI
+     */
+    public void mapConceptsToResources(Collection<SimpleResourceDTO> resources) {
+        var conceptURIs = resources.stream()
+                .map(r -> getConceptURI(r.getConcept()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        var concepts = getConceptDTOs(conceptURIs);
+        resources.forEach(r -> {
+            var conceptURI = getConceptURI(r.getConcept());
+            r.setConcept(conceptURI != null ? concepts.get(conceptURI) : null);
+        });
+    }
+
+    /**
+     * Get concept information. Concepts are cached, the ones not in the cache are fetched in batches.
+     * @param conceptURIs concept URIs
+     * @return concepts by URI
+     */
+    public Map<String, ConceptDTO> getConceptDTOs(Set<String> conceptURIs) {
+        var result = new HashMap<>(conceptCache.getAllPresent(conceptURIs));
+        var missing = conceptURIs.stream()
+                .filter(uri -> !result.containsKey(uri))
+                .toList();
+
+        Lists.partition(missing, CONCEPT_QUERY_BATCH_SIZE).forEach(batch -> {
+            var conceptModel = getConceptDetails(batch);
+            batch.forEach(uri -> {
+                var dto = TerminologyMapper.mapToConceptDTO(conceptModel, uri);
+                conceptCache.put(uri, dto);
+                result.put(uri, dto);
+            });
+        });
+        return result;
     }
 
     private ConceptDTO getMappedConceptDTO(ConceptDTO dto) {
+        var conceptURI = getConceptURI(dto);
+        if (conceptURI == null) {
+            return null;
+        }
+        return getConceptDTOs(Set.of(conceptURI)).get(conceptURI);
+    }
+
+    private static String getConceptURI(ConceptDTO dto) {
         if (dto == null || dto.getConceptURI() == null || dto.getConceptURI().isEmpty()) {
             return null;
         }
-        var conceptModel = getConcept(dto.getConceptURI());
-        return TerminologyMapper.mapToConceptDTO(conceptModel, dto.getConceptURI());
+        return dto.getConceptURI();
     }
 
     public Model getTerminology(String uri) {
@@ -83,7 +139,11 @@ public class TerminologyService {
     }
 
     public Model getConcept(String uri) {
-        var concept = NodeFactory.createURI(uri);
+        return getConceptDetails(List.of(uri));
+    }
+
+    private Model getConceptDetails(Collection<String> conceptURIs) {
+        var concept = "?concept";
         var builder = new ConstructBuilder()
                 .addConstruct(concept, SKOS.definition, "?definition")
                 .addConstruct(concept, SuomiMeta.publicationStatus, "?status")
@@ -94,15 +154,20 @@ public class TerminologyService {
                         .addWhere(concept, SuomiMeta.publicationStatus, "?status")
                         .addWhere(concept, SKOS.prefLabel, "?recommendedTerm")
                         .addWhere("?recommendedTerm", SKOSXL.literalForm, "?label")
-                        .addWhere("?g", SKOS.prefLabel, "?terminology"));
+                        .addWhere("?g", SKOS.prefLabel, "?terminology"))
+                .addValueVar("concept", conceptURIs.stream().map(NodeFactory::createURI).toArray());
 
         return terminologyRepository.queryConstruct(builder.build());
     }
 
     public Model getConcepts(Set<String> conceptURIs) {
-        if (conceptURIs.isEmpty()) {
-            return ModelFactory.createDefaultModel();
-        }
+        var result = ModelFactory.createDefaultModel();
+        Lists.partition(new ArrayList<>(conceptURIs), CONCEPT_QUERY_BATCH_SIZE)
+                .forEach(batch -> result.add(getConceptLabels(batch)));
+        return result;
+    }
+
+    private Model getConceptLabels(List<String> conceptURIs) {
         var resources = conceptURIs.stream()
                 .map(NodeFactory::createURI)
                 .toList()
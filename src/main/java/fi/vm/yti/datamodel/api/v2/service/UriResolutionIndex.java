@@ -0,0 +1,80 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import fi.vm.yti.common.opensearch.OpenSearchClientWrapper;
+import fi.vm.yti.datamodel.api.v2.dto.ResourceType;
+import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexResource;
+import fi.vm.yti.datamodel.api.v2.opensearch.queries.ResourceQueryFactory;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type of a resource, needed for redirecting resolved URIs to the site. Read from the resource index,
+ * so resolving doesn't fetch the whole graph. Found types are kept in memory, entries are removed when
+ * the resources are indexed. Other instances don't remove the entries, so they expire after a while.
+ * Resources not found are not cached, so a resource is resolved as soon as it has been indexed.
+ */
+@Component
+public class UriResolutionIndex {
+
+    private final OpenSearchClientWrapper client;
+    private final Cache<String, ResourceType> resourceTypes;
+
+    public UriResolutionIndex(OpenSearchClientWrapper client,
+                              @Value("${uri.resolve.cache.expiration:600}") Long expireTime,
+                              @Value("${uri.resolve.cache.maxSize:10000}") Long maxSize) {
+        this.client = client;
+        this.resourceTypes = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireTime, TimeUnit.SECONDS)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Get the type of the resource
+     * @param uri resource uri (with version if resolving a resource of a published version)
+     * @return resource type, empty if resource is not found
+     */
+    public Optional<ResourceType> getResourceType(DataModelURI uri) {
+        var id = uri.getResourceVersionURI();
+        var cached = resourceTypes.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        var type = findResourceType(id);
+        type.ifPresent(t -> resourceTypes.put(id, t));
+        return type;
+    }
+
+    /**
+     * Remove the resource after it has been indexed
+     * @param id resource id (resource uri with version)
+     */
+    public void invalidate(String id) {
+        resourceTypes.invalidate(id);
+    }
+
+    /**
+     * Remove all resources of the data model, including its versions
+     * @param modelURI data model uri
+     */
+    public void invalidateModel(String modelURI) {
+        resourceTypes.asMap().keySet().removeIf(key -> key.startsWith(modelURI));
+    }
+
+    private Optional<ResourceType> findResourceType(String id) {
+        var request = ResourceQueryFactory.createFindResourcesByURIQuery(Set.of(id), null);
+        return client.search(request, IndexResource.class).getResponseObjects().stream()
+                .filter(resource -> id.equals(resource.getId()))
+                .map(IndexResource::getResourceType)
+                .filter(Objects::nonNull)
+                .findFirst();
+    }
+}
@@ -1,17 +1,11 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
 import fi.vm.yti.common.Constants;
-import fi.vm.yti.common.util.MapperUtils;
 import fi.vm.yti.datamodel.api.v2.security.DataModelAuthorizationManager;
-import fi.vm.yti.common.exception.ResourceNotFoundException;
-import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import org.apache.jena.iri.IRI;
 import org.apache.jena.iri.IRIFactory;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.vocabulary.OWL;
-import org.apache.jena.vocabulary.OWL2;
-import org.apache.jena.vocabulary.RDF;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,25 +17,25 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
-import org.topbraid.shacl.vocabulary.SH;
 
 @Service
 public class UriResolveService {
 
     private final Logger logger = LoggerFactory.getLogger(UriResolveService.class);
     private static final IRIFactory iriFactory = IRIFactory.iriImplementation();
-    private final CoreRepository coreRepository;
     private final DataModelAuthorizationManager authorizationManager;
-    private final DataModelService dataModelService;
+    private final GraphCatalogService graphCatalogService;
+    private final UriResolutionIndex uriResolutionIndex;
 
     @Value("${env:}")
     private String awsEnv;
 
-    public UriResolveService(CoreRepository coreRepository,
-                             DataModelAuthorizationManager authorizationManager, DataModelService dataModelService) {
-        this.coreRepository = coreRepository;
+    public UriResolveService(DataModelAuthorizationManager authorizationManager,
+                             GraphCatalogService graphCatalogService,
+                             UriResolutionIndex uriResolutionIndex) {
         this.authorizationManager = authorizationManager;
-        this.dataModelService = dataModelService;
+        this.graphCatalogService = graphCatalogService;
+        this.uriResolutionIndex = uriResolutionIndex;
     }
 
     public ResponseEntity<String> resolve(String iri, String accept) {
@@ -83,11 +77,11 @@ public class UriResolveService {
 
         var uri = DataModelURI.Factory.createModelURI(modelId);
 
-        var model = coreRepository.fetch(uri.getGraphURI());
-        var hasRights = authorizationManager.hasRightToModel(uri.getModelId(), model);
+        var metadata = graphCatalogService.get(uri.getGraphURI());
+        var hasRights = authorizationManager.hasRightToModel(uri.getModelId(), metadata.toModel());
 
         String version = null;
-        var versionIRI = MapperUtils.propertyToString(model.getResource(uri.getModelURI()), OWL2.priorVersion);
+        var versionIRI = metadata.priorVersion();
         if (versionIRI != null && !hasRights) {
             version = DataModelURI.Factory.fromURI(versionIRI).getVersion();
         }
@@ -122,19 +116,16 @@ public class UriResolveService {
             // redirect to the site (latest if no version specified)
             redirectURL.pathSegment("model", modelPrefix);
 
-            if (version == null) {
-                try {
-                    version = dataModelService.getLatestVersion(uri);
-                } catch (ResourceNotFoundException e) {
-                    // no published version -> redirect to draft
-                }
+            // throws ResourceNotFoundException if the model or version doesn't exist. The draft refers to
+            // the latest published version, no published version -> redirect to draft
+            var metadata = graphCatalogService.get(DataModelURI.Factory.createModelURI(modelPrefix, version).getGraphURI());
+            if (version == null && metadata.priorVersion() != null) {
+                version = DataModelURI.Factory.fromURI(metadata.priorVersion()).getVersion();
             }
 
-            var dataModel = coreRepository.fetch(DataModelURI.Factory.createModelURI(modelPrefix, version).getGraphURI());
-
             if (uri.getResourceURI() != null) {
-                var resource = dataModel.getResource(uri.getResourceURI());
-                appendResource(redirectURL, resource, uri.getResourceId());
+                var resourceURI = DataModelURI.Factory.createResourceURI(modelPrefix, uri.getResourceId(), version);
+                appendResource(redirectURL, resourceURI);
             }
             if (version != null) {
                 redirectURL.queryParam("ver", version);
@@ -159,20 +150,18 @@ public class UriResolveService {
         return accept != null && accept.contains(MimeTypeUtils.TEXT_HTML_VALUE);
     }
 
-    private void appendResource(UriComponentsBuilder redirectURL, Resource dataModelResource, String resource) {
-        if (MapperUtils.hasType(dataModelResource, OWL.Class, SH.NodeShape)) {
-            redirectURL.pathSegment("class");
-        } else if (MapperUtils.hasType(dataModelResource, OWL.DatatypeProperty)) {
-            redirectURL.pathSegment("attribute");
-        } else if (MapperUtils.hasType(dataModelResource, OWL.ObjectProperty)) {
-            redirectURL.pathSegment("association");
-        } else {
-            logger.warn("No valid type found from resource {}, {}", dataModelResource.getURI(),
-                    dataModelResource.getProperty(RDF.type));
+    private void appendResource(UriComponentsBuilder redirectURL, DataModelURI resourceURI) {
+        var resourceType = uriResolutionIndex.getResourceType(resourceURI);
+        if (resourceType.isEmpty()) {
+            logger.warn("No valid type found from resource {}", resourceURI.getResourceVersionURI());
             return;
         }
-        redirectURL.pathSegment(resource);
-
+        switch (resourceType.get()) {
+            case CLASS -> redirectURL.pathSegment("class");
+            case ATTRIBUTE -> redirectURL.pathSegment("attribute");
+            case ASSOCIATION -> redirectURL.pathSegment("association");
+        }
+        redirectURL.pathSegment(resourceURI.getResourceId());
     }
 
     private static boolean checkIRI(IRI iri) {
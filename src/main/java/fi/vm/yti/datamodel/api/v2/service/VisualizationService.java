@@ -1,5 +1,9 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import fi.vm.yti.common.Constants;
 import fi.vm.yti.common.properties.SuomiMeta;
 import fi.vm.yti.common.service.AuditService;
@@ -9,6 +13,7 @@ import fi.vm.yti.datamodel.api.v2.dto.ModelConstants;
 import fi.vm.yti.datamodel.api.v2.dto.visualization.*;
 import fi.vm.yti.common.exception.ResourceNotFoundException;
 import fi.vm.yti.datamodel.api.v2.mapper.VisualizationMapper;
+import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexResource;
 import fi.vm.yti.datamodel.api.v2.properties.DCAP;
 import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
@@ -19,11 +24,17 @@ import org.apache.jena.util.ResourceUtils;
 import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.topbraid.shacl.vocabulary.SH;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static fi.vm.yti.security.AuthorizationException.check;
@@ -31,6 +42,11 @@ import static fi.vm.yti.security.AuthorizationException.check;
 @Service
 public class VisualizationService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(VisualizationService.class);
+
+    // max size of the search result in ResourceQueryFactory.createFindResourcesByURIQuery
+    private static final int INDEX_QUERY_BATCH_SIZE = 1000;
+
     private final AuditService auditService = new AuditService("VISUALIZATION");
 
     private final ResourceService resourceService;
@@ -38,20 +54,100 @@ public class VisualizationService {
     private final DataModelAuthorizationManager authorizationManager;
     private final AuthenticatedUserProvider userProvider;
     private final SearchIndexService searchIndexService;
+    private final GraphCatalogService graphCatalogService;
+    private final BatchQueryExecutor batchQueryExecutor;
+
+    /**
+     * Draft visualizations are invalidated when the model or position graph is modified. Changes made by
+     * other instances or to the referenced models are not tracked, so the entries expire after a short time.
+     */
+    private final Cache<VisualizationKey, VisualizationResultDTO> draftCache;
+
+    /**
+     * Published versions are modified rarely (metadata updates, position changes and reference updates),
+     * but changes made by other instances are not tracked either, so the entries expire after write.
+     */
+    private final Cache<VisualizationKey, VisualizationResultDTO> versionCache;
 
     public VisualizationService(ResourceService resourceService,
                                 CoreRepository coreRepository,
                                 DataModelAuthorizationManager authorizationManager,
                                 AuthenticatedUserProvider userProvider,
-                                SearchIndexService searchIndexService) {
+                                SearchIndexService searchIndexService,
+                                GraphCatalogService graphCatalogService,
+                                BatchQueryExecutor batchQueryExecutor,
+                                @Value("${visualization.cache.draft.expiration:60}") Long draftCacheExpireTime,
+                                @Value("${visualization.cache.version.expiration:600}") Long versionCacheExpireTime,
+                                @Value("${visualization.cache.maxSize:500}") Long cacheMaxSize) {
         this.resourceService = resourceService;
         this.coreRepository = coreRepository;
         this.authorizationManager = authorizationManager;
         this.userProvider = userProvider;
         this.searchIndexService = searchIndexService;
+        this.graphCatalogService = graphCatalogService;
+        this.batchQueryExecutor = batchQueryExecutor;
+        this.draftCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(draftCacheExpireTime, TimeUnit.SECONDS)
+                .maximumSize(cacheMaxSize)
+                .build();
+        this.versionCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(versionCacheExpireTime, TimeUnit.SECONDS)
+                .maximumSize(cacheMaxSize)
+                .build();
+        coreRepository.addGraphChangeListener(this::invalidateCache);
     }
 
+    /**
+     * Get visualization of the data model. Result is cached by prefix and version, so it must not be modified.
+     * @param prefix data model prefix
+     * @param version version, null for the draft
+     * @return visualization data
+     */
     public VisualizationResultDTO getVisualizationData(String prefix, String version) {
+        var cache = version != null ? versionCache : draftCache;
+        try {
+            return cache.get(new VisualizationKey(prefix, version), () -> createVisualizationData(prefix, version));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Error creating visualization for " + prefix, e.getCause());
+        }
+    }
+
+    /**
+     * Remove cached visualizations affected by the change of a model or position graph
+     * @param graph graph uri or namespace of the modified graphs, empty string invalidates all
+     */
+    public void invalidateCache(String graph) {
+        if (graph == null || graph.isEmpty()) {
+            draftCache.invalidateAll();
+            versionCache.invalidateAll();
+            return;
+        }
+
+        String prefix;
+        String version;
+        if (graph.startsWith(ModelConstants.MODEL_POSITIONS_NAMESPACE)) {
+            var parts = graph.substring(ModelConstants.MODEL_POSITIONS_NAMESPACE.length()).split("/");
+            prefix = parts[0];
+            version = parts.length > 1 ? parts[1] : null;
+        } else if (graph.startsWith(Constants.DATA_MODEL_NAMESPACE)) {
+            var uri = DataModelURI.Factory.fromURI(graph);
+            prefix = uri.getModelId();
+            version = uri.getVersion();
+        } else {
+            return;
+        }
+        LOG.debug("Invalidate visualization cache {} {}", prefix, version);
+        if (version != null) {
+            versionCache.invalidate(new VisualizationKey(prefix, version));
+        } else {
+            draftCache.invalidate(new VisualizationKey(prefix, null));
+        }
+    }
+
+    private VisualizationResultDTO createVisualizationData(String prefix, String version) {
 
         var dataModelURI = DataModelURI.Factory.createModelURI(prefix, version);
         var graph = dataModelURI.getModelURI();
@@ -73,6 +169,10 @@ public class VisualizationService {
                         ? item.getLabel().get("fi")
                         : item.getLabel().getOrDefault("en", "");
 
+        var isLibrary = MapperUtils.isLibrary(modelResource);
+        var classes = new ArrayList<ClassWithExternalResources>();
+
+        // map classes and collect references to external resources of the whole model first
         while (classURIs.hasNext()) {
             var subject = classURIs.next().getSubject();
             if (subject.isAnon()) {
@@ -83,43 +183,55 @@ public class VisualizationService {
 
             var classDTO = VisualizationMapper.mapClass(subject.getURI(), model, namespaces);
 
-            if (MapperUtils.isLibrary(modelResource)) {
+            if (isLibrary) {
                 VisualizationMapper.mapLibraryClassResources(classDTO, model, classResource, externalResources, namespaces);
                 VisualizationMapper.mapAssociationsWithDomain(classDTO, model, classResource, namespaces);
-
-                var ext = externalResources.stream()
-                        .map(e -> MapperUtils.propertyToString(e, OWL.onProperty))
-                        .collect(Collectors.toSet());
-
-                var extResult = searchIndexService.findResourcesByURI(ext, null).getResponseObjects();
-
-                externalResources.forEach(restrictionResource -> {
-                    var onProperty = MapperUtils.propertyToString(restrictionResource, OWL.onProperty);
-                    var externalResource = extResult.stream()
-                            .filter(e -> onProperty != null && onProperty.equals(e.getId()))
-                            .findFirst();
-
-                    externalResource.ifPresent(indexResource ->
-                            VisualizationMapper.mapLibraryIndexResource(
-                                    classDTO,
-                                    restrictionResource,
-                                    indexResource,
-                                    namespaces));
-                });
             } else {
                 VisualizationMapper.mapNodeShapeResources(classDTO, classResource, model, externalResources, namespaces);
-                externalResources.forEach(ext -> {
-                    // search each external resource separately to avoid creating a slow query
-                    var externalResource = resourceService.findResources(Set.of(ext.getURI()), namespaces.keySet());
-                    var resourceURI = DataModelUtils.removeVersionFromURI(ext.getURI());
-                    VisualizationMapper.mapProfileResource(
-                            classDTO,
-                            externalResource.getResource(resourceURI),
-                            ext.getURI(),
-                            model,
-                            namespaces);
-                });
             }
+            classes.add(new ClassWithExternalResources(classDTO, externalResources));
+        }
+
+        // resolve all external resources with batched queries
+        if (isLibrary) {
+            var extURIs = classes.stream()
+                    .flatMap(c -> c.externalResources().stream())
+                    .map(e -> MapperUtils.propertyToString(e, OWL.onProperty))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            var extResult = findIndexResources(extURIs);
+
+            classes.forEach(c -> c.externalResources().forEach(restrictionResource -> {
+                var onProperty = MapperUtils.propertyToString(restrictionResource, OWL.onProperty);
+                var indexResource = onProperty != null ? extResult.get(onProperty) : null;
+                if (indexResource != null) {
+                    VisualizationMapper.mapLibraryIndexResource(
+                            c.classDTO(),
+                            restrictionResource,
+                            indexResource,
+                            namespaces);
+                }
+            }));
+        } else {
+            var extURIs = classes.stream()
+                    .flatMap(c -> c.externalResources().stream())
+                    .map(Resource::getURI)
+                    .collect(Collectors.toSet());
+            var externalModel = resourceService.findResourcesInBatches(extURIs, namespaces.keySet());
+
+            classes.forEach(c -> c.externalResources().forEach(ext -> {
+                var resourceURI = DataModelUtils.removeVersionFromURI(ext.getURI());
+                VisualizationMapper.mapProfileResource(
+                        c.classDTO(),
+                        externalModel.getResource(resourceURI),
+                        ext.getURI(),
+                        model,
+                        namespaces);
+            }));
+        }
+
+        classes.forEach(c -> {
+            var classDTO = c.classDTO();
             classDTO.getAttributes().sort(Comparator.comparing(labelComparator));
             classDTO.getAssociations().sort(Comparator.comparing(labelComparator));
 
@@ -127,7 +239,7 @@ public class VisualizationService {
             addExternalClasses(classDTO, languages, nodes);
 
             nodes.add(classDTO);
-        }
+        });
         nodes.addAll(VisualizationMapper.mapAttributesWithDomain(model));
 
         var hiddenNodes = VisualizationMapper.mapPositionsDataToDTOsAndCreateHiddenNodes(positions, prefix, nodes);
@@ -140,6 +252,21 @@ public class VisualizationService {
         return visualizationResult;
     }
 
+    /**
+     * Find resources from the index in chunks of the maximum result size, chunks are searched in parallel
+     * @param resourceURIs resource URIs
+     * @return index resources by id
+     */
+    private Map<String, IndexResource> findIndexResources(Set<String> resourceURIs) {
+        var batches = Lists.partition(new ArrayList<>(resourceURIs), INDEX_QUERY_BATCH_SIZE).stream()
+                .map(batch -> (Supplier<List<IndexResource>>) () ->
+                        searchIndexService.findResourcesByURI(new HashSet<>(batch), null).getResponseObjects())
+                .toList();
+        return batchQueryExecutor.invokeAll(batches).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(IndexResource::getId, Function.identity(), (a, b) -> a));
+    }
+
     public Model getPositions(String prefix, String version) {
         try {
             return coreRepository.fetch(getPositionGraphURI(prefix, version));
@@ -157,8 +284,8 @@ public class VisualizationService {
         var positionBaseURI = ModelConstants.MODEL_POSITIONS_NAMESPACE + prefix + Constants.RESOURCE_SEPARATOR;
         var positionGraphURI = getPositionGraphURI(prefix, version);
 
-        var dataModel = coreRepository.fetch(uri.getGraphURI());
-        check(authorizationManager.hasRightToModel(prefix, dataModel));
+        var metadata = graphCatalogService.get(uri.getGraphURI());
+        check(authorizationManager.hasRightToModel(prefix, metadata.toModel()));
 
         var positionModel = VisualizationMapper.mapPositionDataToModel(positionBaseURI, positions);
         coreRepository.put(positionGraphURI, positionModel);
@@ -192,9 +319,14 @@ public class VisualizationService {
      */
     public void saveVersionedPositions(String prefix, String version) {
         var draftPositionUri = getPositionGraphURI(prefix, null);
+        var versionPositionUri = getPositionGraphURI(prefix, version);
+        // already copied when the release job is resumed, draft positions may have been changed after the release
+        if (coreRepository.graphExists(versionPositionUri)) {
+            return;
+        }
         try{
             var positionModel = coreRepository.fetch(draftPositionUri);
-            coreRepository.put(getPositionGraphURI(prefix, version), positionModel);
+            coreRepository.put(versionPositionUri, positionModel);
         }catch (ResourceNotFoundException e){
             //if no positions found, do nothing
         }
@@ -268,4 +400,8 @@ public class VisualizationService {
         positionURI += "/";
         return positionURI;
     }
+
+    private record VisualizationKey(String prefix, String version) {}
+
+    private record ClassWithExternalResources(VisualizationClassDTO classDTO, Set<Resource> externalResources) {}
 }
@@ -1,7 +1,7 @@
 package fi.vm.yti.datamodel.api.v2.validator;
 
 import fi.vm.yti.datamodel.api.v2.dto.NodeShapeDTO;
-import fi.vm.yti.datamodel.api.v2.service.ResourceService;
+import fi.vm.yti.datamodel.api.v2.service.ResourceTypeResolver;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import org.apache.jena.vocabulary.OWL;
@@ -9,13 +9,14 @@ import org.apache.jena.vocabulary.RDFS;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.topbraid.shacl.vocabulary.SH;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class NodeShapeValidator extends BaseValidator implements
         ConstraintValidator<ValidNodeShape, NodeShapeDTO> {
 
     @Autowired
-    private ResourceService resourceService;
+    private ResourceTypeResolver resourceTypeResolver;
 
     boolean updateNodeShape;
 
@@ -34,6 +35,9 @@ public class NodeShapeValidator extends BaseValidator implements
         checkSubject(context, nodeShapeDTO);
         checkIdentifier(context, nodeShapeDTO.getIdentifier(), updateNodeShape);
         checkReservedIdentifier(context, nodeShapeDTO);
+
+        // resolve types of the target class and target node with a single query
+        resourceTypeResolver.resolve(Arrays.asList(nodeShapeDTO.getTargetClass(), nodeShapeDTO.getTargetNode()));
         checkTargetClass(context, nodeShapeDTO);
         checkTargetNode(context, nodeShapeDTO);
         checkCommonTextField(context, nodeShapeDTO.getApiPath(), "apiPath");
@@ -44,7 +48,7 @@ public class NodeShapeValidator extends BaseValidator implements
     private void checkTargetClass(ConstraintValidatorContext context, NodeShapeDTO nodeShapeDTO){
         var targetClass = nodeShapeDTO.getTargetClass();
         if(targetClass != null && !targetClass.isBlank()
-                && !resourceService.checkIfResourceIsOneOfTypes(targetClass, List.of(RDFS.Class, OWL.Class))) {
+                && !resourceTypeResolver.isOneOfTypes(targetClass, List.of(RDFS.Class, OWL.Class))) {
             addConstraintViolation(context, "not-class-or-doesnt-exist", "targetClass");
         }
     }
@@ -52,7 +56,7 @@ public class NodeShapeValidator extends BaseValidator implements
     private void checkTargetNode(ConstraintValidatorContext context, NodeShapeDTO nodeShapeDTO){
         var targetNode = nodeShapeDTO.getTargetNode();
         if(targetNode != null && !targetNode.isBlank()
-                && !resourceService.checkIfResourceIsOneOfTypes(targetNode, List.of(SH.NodeShape))) {
+                && !resourceTypeResolver.isOneOfTypes(targetNode, List.of(SH.NodeShape))) {
             addConstraintViolation(context, "not-node-shape-or-doesnt-exist", "targetNode");
         }
     }
@@ -1,7 +1,7 @@
 package fi.vm.yti.datamodel.api.v2.validator;
 
 import fi.vm.yti.datamodel.api.v2.dto.*;
-import fi.vm.yti.datamodel.api.v2.service.ResourceService;
+import fi.vm.yti.datamodel.api.v2.service.ResourceTypeResolver;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import org.apache.jena.vocabulary.OWL;
@@ -9,6 +9,7 @@ import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class PropertyShapeValidator extends BaseValidator implements ConstraintValidator<ValidPropertyShape, PropertyShapeDTO> {
@@ -18,7 +19,7 @@ public class PropertyShapeValidator extends BaseValidator implements ConstraintV
     ResourceType resourceType;
 
     @Autowired
-    private ResourceService resourceService;
+    private ResourceTypeResolver resourceTypeResolver;
 
 
     @Override
@@ -35,6 +36,15 @@ public class PropertyShapeValidator extends BaseValidator implements ConstraintV
         checkEditorialNote(context, value);
         checkNote(context, value);
         checkIdentifier(context, value.getIdentifier(), updateProperty);
+
+        // resolve types of the path and class type with a single query
+        var references = new ArrayList<String>();
+        references.add(value.getPath());
+        if (value instanceof AssociationRestriction association) {
+            references.add(association.getClassType());
+        }
+        resourceTypeResolver.resolve(references);
+
         checkPath(context, value);
         if(resourceType.equals(ResourceType.ASSOCIATION)){
             checkClassType(context, (AssociationRestriction) value);
@@ -58,14 +68,14 @@ public class PropertyShapeValidator extends BaseValidator implements ConstraintV
         var path = dto.getPath();
 
         if (path != null && !path.isBlank()
-                && !resourceService.checkIfResourceIsOneOfTypes(path, List.of(OWL.ObjectProperty, OWL.DatatypeProperty, RDF.Property))) {
+                && !resourceTypeResolver.isOneOfTypes(path, List.of(OWL.ObjectProperty, OWL.DatatypeProperty, RDF.Property))) {
             addConstraintViolation(context, "not-property-or-doesnt-exist", "path");
         }
     }
 
     private void checkClassType(ConstraintValidatorContext context, AssociationRestriction dto) {
         var classType = dto.getClassType();
-        if (classType != null && !resourceService.checkIfResourceIsOneOfTypes(classType, List.of(RDFS.Class, OWL.Class))) {
+        if (classType != null && !resourceTypeResolver.isOneOfTypes(classType, List.of(RDFS.Class, OWL.Class))) {
             addConstraintViolation(context, "not-class-or-doesnt-exist", "path");
         }
     }
@@ -4,7 +4,7 @@ import fi.vm.yti.datamodel.api.v2.dto.ModelConstants;
 import fi.vm.yti.datamodel.api.v2.dto.ResourceDTO;
 import fi.vm.yti.datamodel.api.v2.dto.ResourceType;
 import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
-import fi.vm.yti.datamodel.api.v2.service.ResourceService;
+import fi.vm.yti.datamodel.api.v2.service.ResourceTypeResolver;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import org.apache.jena.graph.NodeFactory;
@@ -12,6 +12,7 @@ import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDFS;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ResourceValidator extends BaseValidator implements ConstraintValidator<ValidResource, ResourceDTO> {
@@ -21,7 +22,7 @@ public class ResourceValidator extends BaseValidator implements ConstraintValida
     private ResourceType resourceType;
 
     @Autowired
-    private ResourceService resourceService;
+    private ResourceTypeResolver resourceTypeResolver;
     @Autowired
     private ImportsRepository importsRepository;
 
@@ -41,6 +42,15 @@ public class ResourceValidator extends BaseValidator implements ConstraintValida
         checkEquivalentProperty(context, value);
         checkSubPropertyOf(context, value);
         checkIdentifier(context, value.getIdentifier(), updateProperty);
+
+        // resolve types of the domain and range with a single query
+        var references = new ArrayList<String>();
+        references.add(value.getDomain());
+        if (resourceType.equals(ResourceType.ASSOCIATION)) {
+            references.add(value.getRange());
+        }
+        resourceTypeResolver.resolve(references);
+
         checkDomain(context, value);
         checkRange(context, value);
 
@@ -83,7 +93,7 @@ public class ResourceValidator extends BaseValidator implements ConstraintValida
 
     private void checkDomain(ConstraintValidatorContext context, ResourceDTO resourceDTO){
         var domain = resourceDTO.getDomain();
-        if(domain != null && !domain.isBlank() && !resourceService.checkIfResourceIsOneOfTypes(domain, List.of(RDFS.Class, OWL.Class))){
+        if(domain != null && !domain.isBlank() && !resourceTypeResolver.isOneOfTypes(domain, List.of(RDFS.Class, OWL.Class))){
             addConstraintViolation(context, "not-class-or-doesnt-exist", "domain");
         }
     }
@@ -92,7 +102,7 @@ public class ResourceValidator extends BaseValidator implements ConstraintValida
         var range = resourceDTO.getRange();
         if(range != null && !range.isBlank()){
             if(resourceType.equals(ResourceType.ASSOCIATION)){
-                if(!resourceService.checkIfResourceIsOneOfTypes(range, List.of(RDFS.Class, OWL.Class))){
+                if(!resourceTypeResolver.isOneOfTypes(range, List.of(RDFS.Class, OWL.Class))){
                     addConstraintViolation(context, "not-class-or-doesnt-exist", "range");
                 }
             }else{
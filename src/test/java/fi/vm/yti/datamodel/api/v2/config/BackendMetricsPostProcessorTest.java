@@ -0,0 +1,108 @@
+package fi.vm.yti.datamodel.api.v2.config;
+
+import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackendMetricsPostProcessorTest {
+
+    private SimpleMeterRegistry registry;
+    private BackendMetricsPostProcessor postProcessor;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        var beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", registry));
+        postProcessor = new BackendMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void shouldRecordRepositoryCalls() {
+        var repository = (TestRepository) postProcessor.postProcessAfterInitialization(new TestRepository(), "importsRepository");
+
+        var model = repository.fetch("http://example.com/graph");
+        assertEquals(2, model.size());
+
+        var timer = registry.find("fuseki.requests")
+                .tag("dataset", "imports")
+                .tag("operation", "fetch")
+                .tag("caller", "BackendMetricsPostProcessorTest.shouldRecordRepositoryCalls")
+                .tag("exception", "none")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+
+        var triples = registry.find("fuseki.triples")
+                .tag("dataset", "imports")
+                .tag("operation", "fetch")
+                .summary();
+        assertNotNull(triples);
+        assertEquals(2, triples.totalAmount());
+    }
+
+    @Test
+    void shouldRecordFailedRepositoryCalls() {
+        var repository = (TestRepository) postProcessor.postProcessAfterInitialization(new TestRepository(), "importsRepository");
+
+        assertThrows(IllegalStateException.class, () -> repository.put("http://example.com/graph", ModelFactory.createDefaultModel()));
+
+        var timer = registry.find("fuseki.requests")
+                .tag("operation", "put")
+                .tag("exception", "IllegalStateException")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void shouldNotProxyOtherBeans() {
+        var bean = new Object();
+        assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "other"));
+    }
+
+    @Test
+    void shouldNotRecordOtherOperations() {
+        var repository = (TestRepository) postProcessor.postProcessAfterInitialization(new TestRepository(), "importsRepository");
+
+        repository.delete("http://example.com/graph");
+
+        assertTrue(registry.find("fuseki.requests").timers().isEmpty());
+    }
+
+    static class TestRepository extends ImportsRepository {
+
+        TestRepository() {
+            super("http://localhost:1");
+        }
+
+        @Override
+        public Model fetch(String graph) {
+            var model = ModelFactory.createDefaultModel();
+            model.createResource(graph)
+                    .addProperty(RDF.type, RDFS.Class)
+                    .addProperty(RDFS.label, "test");
+            return model;
+        }
+
+        @Override
+        public void put(String graph, Model model) {
+            throw new IllegalStateException("Fuseki not available");
+        }
+
+        @Override
+        public void delete(String graph) {
+            // not recorded
+        }
+    }
+}
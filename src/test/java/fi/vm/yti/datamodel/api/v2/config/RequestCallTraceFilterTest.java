@@ -0,0 +1,113 @@
+package fi.vm.yti.datamodel.api.v2.config;
+
+import fi.vm.yti.datamodel.api.v2.endpoint.EndpointUtils;
+import fi.vm.yti.security.AuthenticatedUserProvider;
+import fi.vm.yti.security.YtiUser;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.jena.query.QueryFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestCallTraceFilterTest {
+
+    private final AuthenticatedUserProvider userProvider = mock(AuthenticatedUserProvider.class);
+
+    @Test
+    void shouldAddServerTimingHeader() throws Exception {
+        when(userProvider.getUser()).thenReturn(EndpointUtils.mockSuperUser);
+        var filter = new RequestCallTraceFilter(50, 2000, true, userProvider);
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v2/class/library/test/TestClass"), response,
+                chain(resp -> {
+                    RequestCallTrace.record("fuseki", "core.fetch", new Object[]{"http://uri.suomi.fi/datamodel/ns/test/"}, 2_000_000);
+                    RequestCallTrace.record("fuseki", "core.queryConstruct", new Object[]{"CONSTRUCT ..."}, 1_000_000);
+                    RequestCallTrace.record("opensearch", "models_v2.search", new Object[]{"request"}, 500_000);
+                    resp.getWriter().write("response");
+                    resp.flushBuffer();
+                }));
+
+        assertEquals("fuseki;dur=3.0;desc=\"2 calls\", opensearch;dur=0.5;desc=\"1 calls\"",
+                response.getHeader(RequestCallTraceFilter.SERVER_TIMING));
+        assertEquals("response", response.getContentAsString());
+    }
+
+    @Test
+    void shouldNotAddHeaderWhenDisabled() throws Exception {
+        when(userProvider.getUser()).thenReturn(EndpointUtils.mockSuperUser);
+        var filter = new RequestCallTraceFilter(50, 2000, false, userProvider);
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v2/model/test"), response,
+                chain(resp -> RequestCallTrace.record("fuseki", "core.fetch", new Object[]{"graph"}, 1_000_000)));
+
+        assertNull(response.getHeader(RequestCallTraceFilter.SERVER_TIMING));
+    }
+
+    @Test
+    void shouldNotAddHeaderForOtherUsers() throws Exception {
+        when(userProvider.getUser()).thenReturn(YtiUser.ANONYMOUS_USER);
+        var filter = new RequestCallTraceFilter(50, 2000, true, userProvider);
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v2/model/test"), response,
+                chain(resp -> RequestCallTrace.record("fuseki", "core.fetch", new Object[]{"graph"}, 1_000_000)));
+
+        assertNull(response.getHeader(RequestCallTraceFilter.SERVER_TIMING));
+    }
+
+    @Test
+    void shouldFindRepeatedCalls() throws Exception {
+        when(userProvider.getUser()).thenReturn(YtiUser.ANONYMOUS_USER);
+        var filter = new RequestCallTraceFilter(2, 2000, false, userProvider);
+        var trace = new AtomicReference<Map<String, Integer>>();
+        var query = QueryFactory.create("ASK { ?s ?p ?o }");
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v2/visualization/test"), new MockHttpServletResponse(),
+                chain(resp -> {
+                    for (int i = 0; i < 3; i++) {
+                        RequestCallTrace.record("fuseki", "core.fetch", new Object[]{"http://uri.suomi.fi/datamodel/ns/foo/"}, 1_000);
+                    }
+                    RequestCallTrace.record("fuseki", "core.fetch", new Object[]{"http://uri.suomi.fi/datamodel/ns/bar/"}, 1_000);
+                    RequestCallTrace.record("fuseki", "core.queryAsk", new Object[]{query}, 1_000);
+                    RequestCallTrace.record("fuseki", "core.queryAsk", new Object[]{QueryFactory.create("ASK { ?s ?p ?o }")}, 1_000);
+                    trace.set(RequestCallTrace.current().getRepeatedCalls());
+                }));
+
+        assertEquals(Map.of(
+                "core.fetch http://uri.suomi.fi/datamodel/ns/foo/", 3,
+                "core.queryAsk " + query.queryType() + "#" + Integer.toHexString(query.hashCode()), 2), trace.get());
+        assertNull(RequestCallTrace.current());
+    }
+
+    @Test
+    void shouldIgnoreCallsOutsideRequests() {
+        RequestCallTrace.record("fuseki", "core.fetch", new Object[]{"graph"}, 1_000);
+        assertNull(RequestCallTrace.current());
+    }
+
+    private interface ServletBody {
+        void handle(HttpServletResponse response) throws IOException;
+    }
+
+    private static MockFilterChain chain(ServletBody body) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                body.handle(resp);
+            }
+        });
+    }
+}
@@ -5,6 +5,7 @@ import fi.vm.yti.datamodel.api.v2.dto.NodeShapeDTO;
 import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
 import fi.vm.yti.datamodel.api.v2.service.ClassService;
 import fi.vm.yti.datamodel.api.v2.service.ResourceService;
+import fi.vm.yti.datamodel.api.v2.service.ResourceTypeResolver;
 import fi.vm.yti.datamodel.api.v2.validator.ExceptionHandlerAdvice;
 import fi.vm.yti.datamodel.api.v2.validator.ValidationConstants;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -48,6 +49,8 @@ class ClassControllerTest {
     @MockBean
     ResourceService resourceService;
     @MockBean
+    ResourceTypeResolver resourceTypeResolver;
+    @MockBean
     private ImportsRepository importsRepository;
 
     @Autowired
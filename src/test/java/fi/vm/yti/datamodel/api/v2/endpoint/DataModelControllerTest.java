@@ -404,6 +404,16 @@ class DataModelControllerTest {
         verifyNoMoreInteractions(dataModelService);
     }
 
+    @Test
+    void shouldGetReleaseStatus() throws Exception {
+        mvc.perform(get("/v2/model/test/release/status")
+                        .param("version","1.0.1"))
+                .andExpect(status().isOk());
+
+        verify(dataModelService).getReleaseStatus("test", "1.0.1");
+        verifyNoMoreInteractions(dataModelService);
+    }
+
     @Test
     void shouldGetPriorVersions() throws Exception {
         mvc.perform(get("/v2/model/test/versions")
@@ -3,6 +3,7 @@ package fi.vm.yti.datamodel.api.v2.endpoint;
 import fi.vm.yti.datamodel.api.v2.dto.*;
 import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
 import fi.vm.yti.datamodel.api.v2.service.ResourceService;
+import fi.vm.yti.datamodel.api.v2.service.ResourceTypeResolver;
 import fi.vm.yti.datamodel.api.v2.validator.ExceptionHandlerAdvice;
 import fi.vm.yti.datamodel.api.v2.validator.ValidationConstants;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -44,6 +45,9 @@ class ResourceControllerTest {
     @MockBean
     private ResourceService resourceService;
 
+    @MockBean
+    private ResourceTypeResolver resourceTypeResolver;
+
     @MockBean
     ImportsRepository importsRepository;
 
@@ -62,7 +66,7 @@ class ResourceControllerTest {
     @CsvSource({"attribute", "association"})
     void shouldValidateAndCreate(String resourceType) throws Exception {
         var resourceDTO = createResourceDTO(false, resourceType);
-        when(resourceService.checkIfResourceIsOneOfTypes(eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"), anyList())).thenReturn(true);
+        when(resourceTypeResolver.isOneOfTypes(eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"), anyList())).thenReturn(true);
 
         this.mvc
                 .perform(post("/v2/resource/library/test/{resourceType}", resourceType)
@@ -71,9 +75,9 @@ class ResourceControllerTest {
                 .andExpect(status().isCreated());
         //validator
         if (resourceType.equals("attribute")) {
-            verify(resourceService, times(1)).checkIfResourceIsOneOfTypes(anyString(), anyList());
+            verify(resourceTypeResolver, times(1)).isOneOfTypes(anyString(), anyList());
         } else {
-            verify(resourceService, times(2)).checkIfResourceIsOneOfTypes(anyString(), anyList());
+            verify(resourceTypeResolver, times(2)).isOneOfTypes(anyString(), anyList());
         }
         //controller
         verify(resourceService).create(anyString(), any(ResourceDTO.class), any(ResourceType.class), eq(false));
@@ -159,7 +163,7 @@ class ResourceControllerTest {
     @CsvSource({"attribute", "association"})
     void shouldValidateAndUpdate(String resourceType) throws Exception {
         var resourceDTO = createResourceDTO(true, resourceType);
-        when(resourceService.checkIfResourceIsOneOfTypes(eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"), anyList())).thenReturn(true);
+        when(resourceTypeResolver.isOneOfTypes(eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"), anyList())).thenReturn(true);
 
         this.mvc
                 .perform(put("/v2/resource/library/test/{resourceType}/TestA{resourceType}", resourceType, resourceType.substring(1))
@@ -169,9 +173,9 @@ class ResourceControllerTest {
 
         //validator
         if (resourceType.equals("attribute")) {
-            verify(resourceService, times(1)).checkIfResourceIsOneOfTypes(anyString(), anyList());
+            verify(resourceTypeResolver, times(1)).isOneOfTypes(anyString(), anyList());
         } else {
-            verify(resourceService, times(2)).checkIfResourceIsOneOfTypes(anyString(), anyList());
+            verify(resourceTypeResolver, times(2)).isOneOfTypes(anyString(), anyList());
         }
         verify(resourceService).update(anyString(), anyString(), any(ResourceDTO.class));
         verifyNoMoreInteractions(resourceService);
@@ -216,7 +220,7 @@ class ResourceControllerTest {
     void shouldValidateAndCreatePropertyShape() throws Exception {
         var dto = createAttributeRestriction();
 
-        when(resourceService.checkIfResourceIsOneOfTypes(eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"), anyList()))
+        when(resourceTypeResolver.isOneOfTypes(eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"), anyList()))
                 .thenReturn(true);
 
         this.mvc
@@ -225,7 +229,7 @@ class ResourceControllerTest {
                         .content(EndpointUtils.convertObjectToJsonString(dto)))
                 .andExpect(status().isCreated());
 
-        verify(resourceService).checkIfResourceIsOneOfTypes(anyString(), anyList());
+        verify(resourceTypeResolver).isOneOfTypes(anyString(), anyList());
         verify(resourceService).create(anyString(), any(PropertyShapeDTO.class), eq(ResourceType.ATTRIBUTE), eq(true));
         verifyNoMoreInteractions(resourceService);
     }
@@ -247,7 +251,7 @@ class ResourceControllerTest {
     void shouldInvalidateAttributeRestriction(
             AttributeRestriction dto,
             String[] expectedResult) throws Exception {
-        when(resourceService.checkIfResourceIsOneOfTypes(
+        when(resourceTypeResolver.isOneOfTypes(
                 eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"),
                 anyList()))
                 .thenReturn(true);
@@ -277,7 +281,7 @@ class ResourceControllerTest {
     void shouldInvalidateAssociationRestriction(
             AssociationRestriction dto,
             String[] expectedResult) throws Exception {
-        when(resourceService.checkIfResourceIsOneOfTypes(
+        when(resourceTypeResolver.isOneOfTypes(
                 eq("http://uri.suomi.fi/datamodel/ns/int/FakeClass"),
                 anyList()))
                 .thenReturn(true);
@@ -17,7 +17,9 @@ import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
 import fi.vm.yti.datamodel.api.v2.repository.SchemesRepository;
 import fi.vm.yti.datamodel.api.v2.service.DataModelService;
+import fi.vm.yti.datamodel.api.v2.service.GraphCatalogService;
 import fi.vm.yti.datamodel.api.v2.service.TerminologyService;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelMapperUtils;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import fi.vm.yti.security.YtiUser;
 import org.apache.jena.rdf.model.Model;
@@ -61,6 +63,8 @@ class ModelMapperTest {
     ImportsRepository importsRepository;
     @MockBean
     SchemesRepository schemesRepository;
+    @MockBean
+    GraphCatalogService graphCatalogService;
     @Autowired
     ModelMapper mapper;
 
@@ -79,6 +83,7 @@ class ModelMapperTest {
                 .addProperty(RDF.type, SuomiMeta.ApplicationProfile)
                         .addProperty(DCAP.preferredXMLNamespacePrefix, "test");
         when(coreRepository.fetch(anyString())).thenReturn(mockModel);
+        when(graphCatalogService.get(anyString())).thenReturn(getMetadata(Constants.DATA_MODEL_NAMESPACE + "newint/", mockModel));
 
         UUID organizationId = UUID.randomUUID();
         YtiUser mockUser = EndpointUtils.mockUser;
@@ -182,6 +187,7 @@ class ModelMapperTest {
                 .addProperty(RDF.type, OWL.Ontology)
                 .addProperty(DCAP.preferredXMLNamespacePrefix, "test");
         when(coreRepository.fetch(anyString())).thenReturn(mockModel);
+        when(graphCatalogService.get(anyString())).thenReturn(getMetadata(Constants.DATA_MODEL_NAMESPACE + "newint/", mockModel));
 
         UUID organizationId = UUID.randomUUID();
         YtiUser mockUser = EndpointUtils.mockUser;
@@ -311,6 +317,8 @@ class ModelMapperTest {
         var m = MapperTestUtils.getModelFromFile("/test_datamodel_library.ttl");
         var nsModel = MapperTestUtils.getModelFromFile("/test_datamodel_internal_reference.ttl");
         when(coreRepository.fetch(Constants.DATA_MODEL_NAMESPACE + "int/")).thenReturn(nsModel);
+        when(graphCatalogService.get(Constants.DATA_MODEL_NAMESPACE + "int/"))
+                .thenReturn(getMetadata(Constants.DATA_MODEL_NAMESPACE + "int/", nsModel));
         var result = mapper.mapToDataModelDTO("test", m, null);
 
         assertEquals("test", result.getPrefix());
@@ -366,6 +374,8 @@ class ModelMapperTest {
         var m = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_version.ttl");
         var nsModel = MapperTestUtils.getModelFromFile("/test_datamodel_internal_reference.ttl");
         when(coreRepository.fetch(Constants.DATA_MODEL_NAMESPACE + "int")).thenReturn(nsModel);
+        when(graphCatalogService.get(Constants.DATA_MODEL_NAMESPACE + "int"))
+                .thenReturn(getMetadata(Constants.DATA_MODEL_NAMESPACE + "int/", nsModel));
         var result = mapper.mapToDataModelDTO("test", m, null);
 
 
@@ -546,4 +556,7 @@ class ModelMapperTest {
                 ResourceFactory.createResource(DataModelURI.Factory.createResourceURI("test", "class-1").getResourceURI()), null));
     }
 
+    private static GraphCatalogService.GraphMetadata getMetadata(String graph, Model model) {
+        return GraphCatalogService.GraphMetadata.of(graph, DataModelMapperUtils.getModelResourceFromVersion(model), model.size());
+    }
 }
@@ -0,0 +1,92 @@
+package fi.vm.yti.datamodel.api.v2.repository;
+
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.sparql.modify.request.UpdateDataDelete;
+import org.apache.jena.sparql.modify.request.UpdateDataInsert;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeTrackingGraphTest {
+
+    private static final String GRAPH = "https://iri.suomi.fi/model/test/";
+
+    @Test
+    void testRecordChanges() {
+        var base = ModelFactory.createDefaultModel();
+        base.createResource(GRAPH + "class-1")
+                .addProperty(RDF.type, OWL.Class)
+                .addProperty(RDFS.label, "old label", "fi");
+
+        var graph = new ChangeTrackingGraph(GRAPH, base.getGraph());
+        var model = ModelFactory.createModelForGraph(graph);
+        assertFalse(graph.hasChanges());
+
+        var resource = model.getResource(GRAPH + "class-1");
+        resource.removeAll(RDFS.label);
+        resource.addProperty(RDFS.label, "new label", "fi");
+
+        // adding an existing statement is not a change
+        resource.addProperty(RDF.type, OWL.Class);
+
+        assertTrue(graph.hasChanges());
+        assertEquals(2, graph.getChangeCount());
+        assertFalse(graph.hasBlankNodeChanges());
+
+        // changes are written to the wrapped graph as well
+        assertTrue(base.contains(resource, RDFS.label, ResourceFactory.createLangLiteral("new label", "fi")));
+
+        var request = graph.toUpdateRequest();
+        assertEquals(2, request.getOperations().size());
+        assertInstanceOf(UpdateDataDelete.class, request.getOperations().get(0));
+        assertInstanceOf(UpdateDataInsert.class, request.getOperations().get(1));
+
+        graph.resetChanges();
+        assertFalse(graph.hasChanges());
+    }
+
+    @Test
+    void testRevertedChangesAreNotRecorded() {
+        var base = ModelFactory.createDefaultModel();
+        var graph = new ChangeTrackingGraph(GRAPH, base.getGraph());
+        var model = ModelFactory.createModelForGraph(graph);
+
+        var resource = model.createResource(GRAPH + "class-1").addProperty(RDF.type, OWL.Class);
+        model.remove(resource, RDF.type, OWL.Class);
+
+        assertFalse(graph.hasChanges());
+    }
+
+    @Test
+    void testBlankNodeChanges() {
+        var graph = new ChangeTrackingGraph(GRAPH, ModelFactory.createDefaultModel().getGraph());
+        var model = ModelFactory.createModelForGraph(graph);
+
+        model.createResource(GRAPH + "class-1")
+                .addProperty(OWL.equivalentClass, model.createResource().addProperty(RDF.type, OWL.Restriction));
+
+        assertTrue(graph.hasBlankNodeChanges());
+    }
+
+    @Test
+    void testSharedGraphIsNotModified() {
+        var shared = ModelFactory.createDefaultModel();
+        shared.setNsPrefix("test", GRAPH);
+        shared.createResource(GRAPH + "class-1").addProperty(RDF.type, OWL.Class);
+
+        var graph = new ChangeTrackingGraph(GRAPH, shared.getGraph(), true);
+        var model = ModelFactory.createModelForGraph(graph);
+        model.setNsPrefix("other", "http://example.com/");
+        model.createResource(GRAPH + "class-2").addProperty(RDF.type, OWL.Class);
+
+        assertEquals(2, model.size());
+        assertEquals(GRAPH, model.getNsPrefixURI("test"));
+        assertEquals(1, shared.size());
+        assertNull(shared.getNsPrefixURI("other"));
+        assertEquals(1, graph.getChangeCount());
+    }
+}
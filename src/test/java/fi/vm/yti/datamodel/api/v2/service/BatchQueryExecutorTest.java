@@ -0,0 +1,35 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.common.exception.JenaQueryException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchQueryExecutorTest {
+
+    private final BatchQueryExecutor executor = new BatchQueryExecutor(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldReturnResultsInBatchOrder() {
+        List<Supplier<String>> batches = List.of(() -> "a", () -> "b", () -> "c");
+        assertEquals(List.of("a", "b", "c"), executor.invokeAll(batches));
+    }
+
+    @Test
+    void shouldThrowBatchException() {
+        List<Supplier<String>> batches = List.of(() -> "a", () -> {
+            throw new JenaQueryException("query failed");
+        });
+        assertThrows(JenaQueryException.class, () -> executor.invokeAll(batches));
+    }
+}
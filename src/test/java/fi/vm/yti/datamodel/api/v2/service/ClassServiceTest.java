@@ -52,7 +52,8 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @Import({
-        ClassService.class
+        ClassService.class,
+        BatchQueryExecutor.class
 })
 class ClassServiceTest {
 
@@ -343,6 +344,7 @@ class ClassServiceTest {
         classService.delete("test", "Identifier");
 
         verify(coreRepository).fetch(anyString());
+        verify(coreRepository, never()).querySelect(any(Query.class), any(Consumer.class));
         verify(authorizationManager).hasRightToModel(anyString(), any(Model.class));
         verify(coreRepository).deleteResource(DataModelURI.Factory
                 .createResourceURI("test", "Identifier")
@@ -21,6 +21,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -41,9 +42,7 @@ class CodeListServiceTest {
     private SchemesRepository schemesRepository;
     private final ObjectMapper mapper = new ObjectMapper();
     @Captor
-    private ArgumentCaptor<String> stringCaptor;
-    @Captor
-    private ArgumentCaptor<Model> modelCaptor;
+    private ArgumentCaptor<Map<String, Model>> modelCaptor;
     @Autowired
     private CodeListService service;
 
@@ -58,11 +57,18 @@ class CodeListServiceTest {
 
         service.resolveCodelistScheme(Set.of(GRAPH));
 
-        verify(schemesRepository).put(stringCaptor.capture(), modelCaptor.capture());
-        var label = MapperUtils.localizedPropertyToMap(modelCaptor.getValue().getResource(GRAPH), RDFS.label);
+        verify(schemesRepository).putAll(modelCaptor.capture());
+        var model = modelCaptor.getValue().get(GRAPH);
+        assertNotNull(model);
+        var label = MapperUtils.localizedPropertyToMap(model.getResource(GRAPH), RDFS.label);
 
-        assertEquals(GRAPH, stringCaptor.getValue());
+        assertEquals(Set.of(GRAPH), modelCaptor.getValue().keySet());
         assertEquals("testcodelist", label.get("fi"));
+
+        // recently resolved code list is not fetched again
+        service.resolveCodelistScheme(Set.of(GRAPH));
+        verify(client).get();
+        verify(schemesRepository).putAll(anyMap());
     }
 
     @Test
@@ -75,10 +81,8 @@ class CodeListServiceTest {
     private void mockWebClient(CodeListDTO result) {
         var req = mock(WebClient.RequestHeadersUriSpec.class);
         var res = mock(WebClient.ResponseSpec.class);
-        var mono = mock(Mono.class);
 
-        when(res.bodyToMono(any(ParameterizedTypeReference.class))).thenReturn(mono);
-        when(mono.block()).thenReturn(result);
+        when(res.bodyToMono(any(ParameterizedTypeReference.class))).thenReturn(Mono.justOrEmpty(result));
 
         when(client.get()).thenReturn(req);
         when(req.uri(any(Function.class))).thenReturn(req);
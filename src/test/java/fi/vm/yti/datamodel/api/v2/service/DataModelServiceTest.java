@@ -12,6 +12,7 @@ import fi.vm.yti.datamodel.api.v2.security.DataModelAuthorizationManager;
 import fi.vm.yti.datamodel.api.v2.dto.DataModelDTO;
 import fi.vm.yti.datamodel.api.v2.dto.ExternalNamespaceDTO;
 import fi.vm.yti.datamodel.api.v2.dto.ModelVersionInfo;
+import fi.vm.yti.datamodel.api.v2.dto.ReleaseStatusDTO;
 import fi.vm.yti.datamodel.api.v2.dto.VersionedModelDTO;
 import fi.vm.yti.datamodel.api.v2.endpoint.EndpointUtils;
 import fi.vm.yti.common.exception.ResourceNotFoundException;
@@ -23,15 +24,20 @@ import fi.vm.yti.security.AuthenticatedUserProvider;
 import fi.vm.yti.security.AuthorizationException;
 import fi.vm.yti.security.Role;
 import fi.vm.yti.security.YtiUser;
+import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.rdf.model.*;
+import org.apache.jena.update.UpdateRequest;
+import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.OWL2;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.EnumSource;
@@ -40,9 +46,19 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,7 +71,11 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @Import({
-        DataModelService.class
+        DataModelService.class,
+        ReleaseJobService.class
+})
+@TestPropertySource(properties = {
+        "release.stage.retryDelay=0"
 })
 class DataModelServiceTest {
 
@@ -89,6 +109,9 @@ class DataModelServiceTest {
     @MockBean
     DataModelSubscriptionService dataModelSubscriptionService;
 
+    @MockBean
+    ExportCacheService exportCacheService;
+
     @Autowired
     DataModelService dataModelService;
 
@@ -286,20 +309,20 @@ class DataModelServiceTest {
     }
 
     @Test
-    void shouldExport() {
+    void shouldExport() throws IOException {
         var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
         when(coreRepository.fetch(anyString())).thenReturn(model);
         when(authorizationManager.hasRightToModel(anyString(), any(Model.class))).thenReturn(true);
 
         var response = dataModelService.export("test", null, "text/turtle", false, "fi");
-        assertNotNull(response.getBody());
-        assertTrue(response.getBody().contains("test:TestClass"));
-        assertTrue(response.getBody().contains("test:TestAttribute"));
-        assertTrue(response.getBody().contains("test:TestAssociation"));
+        var body = getBody(response);
+        assertTrue(body.contains("test:TestClass"));
+        assertTrue(body.contains("test:TestAttribute"));
+        assertTrue(body.contains("test:TestAssociation"));
     }
 
     @ParameterizedTest
-    @ValueSource(strings = {"application/ld+json", "text/turtle", "application/rdf+xml"})
+    @ValueSource(strings = {"application/ld+json", "text/turtle", "application/n-triples", "application/rdf+xml"})
     void shouldGetModelWithAcceptHeader(String accept) {
         when(coreRepository.fetch(anyString())).thenReturn(ModelFactory.createDefaultModel());
 
@@ -309,14 +332,80 @@ class DataModelServiceTest {
     }
 
     @Test
-    void shouldRemoveTriplesHiddenFromUnauthenticatedUser() {
+    void shouldRemoveTriplesHiddenFromUnauthenticatedUser() throws IOException {
         var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
         when(coreRepository.fetch(anyString())).thenReturn(model);
         when(authorizationManager.hasRightToModel(anyString(), any(Model.class))).thenReturn(false);
         var response = dataModelService.export("test", null, "text/turtle", false, "fi");
         assertTrue(response.getStatusCode().is2xxSuccessful());
-        assertNotNull(response.getBody());
-        assertFalse(response.getBody().contains("skos:editorialNote"));
+        assertFalse(getBody(response).contains("skos:editorialNote"));
+    }
+
+    @Test
+    void shouldServePublishedVersionFromExportCache(@TempDir Path tempDir) throws IOException {
+        var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
+        var file = Files.writeString(tempDir.resolve("public.ttl"), "cached");
+        when(coreRepository.fetch(anyString())).thenReturn(model);
+        when(authorizationManager.hasRightToModel(anyString(), any(Model.class))).thenReturn(false);
+        when(exportCacheService.getOrRender(any(ExportCacheService.ExportKey.class), any(StreamingResponseBody.class)))
+                .thenReturn(new ExportCacheService.CachedExport(file, "\"etag\"", Instant.now(), 6));
+
+        var response = dataModelService.export("test", "1.0.0", "text/turtle", false, "fi");
+
+        var captor = ArgumentCaptor.forClass(ExportCacheService.ExportKey.class);
+        verify(exportCacheService).getOrRender(captor.capture(), any(StreamingResponseBody.class));
+        assertEquals("test", captor.getValue().prefix());
+        assertEquals("1.0.0", captor.getValue().version());
+        assertNotNull(captor.getValue().revision());
+        assertEquals("text/turtle", captor.getValue().contentType());
+        assertNull(captor.getValue().language());
+        assertTrue(captor.getValue().publicOnly());
+        assertEquals("\"etag\"", response.getHeaders().getETag());
+        assertEquals("cached", getBody(response));
+    }
+
+    @Test
+    void shouldNotCacheExportInOtherLanguage() throws IOException {
+        var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
+        when(coreRepository.fetch(anyString())).thenReturn(model);
+
+        var response = dataModelService.export("test", "1.0.0", "application/schema+json", false, "xx");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getETag());
+        verify(exportCacheService, never()).getOrRender(any(ExportCacheService.ExportKey.class), any(StreamingResponseBody.class));
+    }
+
+    @Test
+    void shouldReturnNotModifiedForMatchingETag(@TempDir Path tempDir) throws IOException {
+        var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
+        var file = Files.writeString(tempDir.resolve("public.ttl"), "cached");
+        when(coreRepository.fetch(anyString())).thenReturn(model);
+        when(exportCacheService.getOrRender(any(ExportCacheService.ExportKey.class), any(StreamingResponseBody.class)))
+                .thenReturn(new ExportCacheService.CachedExport(file, "\"etag\"", Instant.now(), 6));
+
+        var response = dataModelService.export("test", "1.0.0", "text/turtle", false, "fi", "\"other\", \"etag\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"etag\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+
+        response = dataModelService.export("test", "1.0.0", "text/turtle", false, "fi", "\"other\"");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void shouldServeCachedExportRemovedAfterResponse(@TempDir Path tempDir) throws IOException {
+        var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
+        var file = Files.writeString(tempDir.resolve("public.ttl"), "cached");
+        when(coreRepository.fetch(anyString())).thenReturn(model);
+        when(exportCacheService.getOrRender(any(ExportCacheService.ExportKey.class), any(StreamingResponseBody.class)))
+                .thenReturn(new ExportCacheService.CachedExport(file, "\"etag\"", Instant.now(), 6));
+
+        var response = dataModelService.export("test", "1.0.0", "text/turtle", false, "fi");
+
+        // e.g. export cache cleared by a release before the body is written
+        Files.delete(file);
+        assertEquals("cached", getBody(response));
     }
 
 
@@ -331,6 +420,7 @@ class DataModelServiceTest {
         when(userProvider.getUser()).thenReturn(YtiUser.ANONYMOUS_USER);
 
         dataModelService.createRelease("test", "1.0.1", Status.VALID);
+        dataModelService.awaitRelease("test", "1.0.1");
 
         verify(coreRepository).fetch(anyString());
         verify(authorizationManager).hasRightToModel(anyString(), any(Model.class));
@@ -347,6 +437,8 @@ class DataModelServiceTest {
         verify(modelMapper).mapToIndexModel(eq(Constants.DATA_MODEL_NAMESPACE + "test/"), any(Model.class));
         verify(indexService).createModelToIndex(any(IndexModel.class));
         verify(visualizationService).saveVersionedPositions("test", "1.0.1");
+        verify(exportCacheService).invalidateAll();
+        verify(exportCacheService, times(3)).prerender(any(ExportCacheService.ExportKey.class), any(StreamingResponseBody.class));
 
         var captor = ArgumentCaptor.forClass(String.class);
         verify(dataModelSubscriptionService).publish(eq("test"), anyString(), captor.capture());
@@ -354,6 +446,59 @@ class DataModelServiceTest {
         assertTrue(captor.getValue().contains("testlabel"), "label not included to the message");
     }
 
+    @Test
+    void testCreateReleaseStatus() throws URISyntaxException {
+        var model = MapperTestUtils.getModelFromFile("/test_datamodel_library.ttl");
+        when(authorizationManager.hasRightToModel(anyString(), any(Model.class))).thenReturn(true);
+        model.getResource(Constants.DATA_MODEL_NAMESPACE + "test").removeAll(OWL.priorVersion);
+        when(coreRepository.fetch(anyString())).thenReturn(model);
+        when(modelMapper.mapToIndexModel(anyString(), any(Model.class))).thenReturn(mock(IndexModel.class));
+        when(userProvider.getUser()).thenReturn(YtiUser.ANONYMOUS_USER);
+        // fails on the first attempt, succeeds when retried
+        doThrow(new RuntimeException("positions failed")).doNothing()
+                .when(visualizationService).saveVersionedPositions("test", "1.0.2");
+
+        dataModelService.createRelease("test", "1.0.2", Status.VALID);
+        dataModelService.awaitRelease("test", "1.0.2");
+
+        var status = dataModelService.getReleaseStatus("test", "1.0.2");
+        assertEquals(ReleaseStatusDTO.JobStatus.DONE, status.getStatus());
+        assertEquals(List.of("references", "index", "positions", "exports", "notification"), List.copyOf(status.getStages().keySet()));
+        assertTrue(status.getErrors().isEmpty());
+        assertNotNull(status.getFinished());
+        verify(visualizationService, times(2)).saveVersionedPositions("test", "1.0.2");
+    }
+
+    @Test
+    void testUpdateDraftReferences() {
+        var graph = Constants.DATA_MODEL_NAMESPACE + "test/";
+        var foo = Constants.DATA_MODEL_NAMESPACE + "foo/";
+        var bar = Constants.DATA_MODEL_NAMESPACE + "bar/1.0.0/";
+        var baz = Constants.DATA_MODEL_NAMESPACE + "baz/";
+        var dataset = DatasetFactory.createTxnMem();
+        // foo imports the model, bar requires it (stored without the trailing slash), baz and the model's own
+        // version don't refer to it
+        dataset.addNamedModel(foo, modelReferring(foo, OWL.imports, graph));
+        dataset.addNamedModel(bar, modelReferring(bar, DCTerms.requires, Constants.DATA_MODEL_NAMESPACE + "test"));
+        dataset.addNamedModel(baz, modelReferring(baz, OWL.imports, Constants.DATA_MODEL_NAMESPACE + "other/"));
+        dataset.addNamedModel(graph + "1.0.0/", modelReferring(graph, OWL.imports, graph));
+        doAnswer(invocation -> {
+            Consumer<QuerySolution> consumer = invocation.getArgument(1);
+            try (var exec = QueryExecutionFactory.create(invocation.<Query>getArgument(0), dataset)) {
+                exec.execSelect().forEachRemaining(consumer);
+            }
+            return null;
+        }).when(coreRepository).querySelect(any(Query.class), any(Consumer.class));
+
+        dataModelService.updateDraftReferences(graph, "1.0.1");
+
+        verify(coreRepository).queryUpdate(eq(foo), any(UpdateRequest.class));
+        verify(coreRepository).queryUpdate(eq(bar), any(UpdateRequest.class));
+        verify(coreRepository, times(2)).queryUpdate(anyString(), any(UpdateRequest.class));
+        verify(coreRepository, never()).queryUpdate(any(UpdateRequest.class));
+        verify(exportCacheService).invalidateAll();
+    }
+
     @Test
     void testCreateReleaseInvalidVersions(){
         var model = MapperTestUtils.getModelFromFile("/test_datamodel_library.ttl");
@@ -682,5 +827,18 @@ class DataModelServiceTest {
         return dataModelDTO;
     }
 
+    private static String getBody(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        assertNotNull(response.getBody());
+        var out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
 
+    private static Model modelReferring(String modelURI, Property property, String referredURI) {
+        var model = ModelFactory.createDefaultModel();
+        model.createResource(modelURI)
+                .addProperty(RDF.type, OWL.Ontology)
+                .addProperty(property, ResourceFactory.createResource(referredURI));
+        return model;
+    }
 }
@@ -0,0 +1,106 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportCacheServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRenderOnlyOnce() throws Exception {
+        var service = new ExportCacheService(true, tempDir.toString(), 0L, 100, 1000L);
+        var key = new ExportCacheService.ExportKey("test", "1.0.0", "r1", "text/turtle", "fi", true);
+        var renderCount = new AtomicInteger();
+
+        var first = service.getOrRender(key, out -> {
+            renderCount.incrementAndGet();
+            out.write("content".getBytes(StandardCharsets.UTF_8));
+        });
+        var second = service.getOrRender(key, out -> renderCount.incrementAndGet());
+
+        assertNotNull(first);
+        assertEquals(1, renderCount.get());
+        assertEquals(first.etag(), second.etag());
+        assertEquals("content", Files.readString(first.path()));
+
+        // language is ignored for RDF serializations
+        var otherLanguage = new ExportCacheService.ExportKey("test", "1.0.0", "r1", "text/turtle", "en", true);
+        assertEquals(key, otherLanguage);
+    }
+
+    @Test
+    void shouldRenderAgainAfterInvalidation() {
+        var service = new ExportCacheService(true, tempDir.toString(), 0L, 100, 1000L);
+        var key = new ExportCacheService.ExportKey("test", "1.0.0", "r1", "application/ld+json", null, false);
+
+        var first = service.getOrRender(key, out -> out.write("first".getBytes(StandardCharsets.UTF_8)));
+        service.invalidate("test", "1.0.0");
+        var second = service.getOrRender(key, out -> out.write("second".getBytes(StandardCharsets.UTF_8)));
+
+        assertNotEquals(first.etag(), second.etag());
+    }
+
+    @Test
+    void shouldRenderNewRevision() {
+        var service = new ExportCacheService(true, tempDir.toString(), 0L, 100, 1000L);
+        var key = new ExportCacheService.ExportKey("test", "1.0.0", "r1", "text/turtle", null, true);
+        var updated = new ExportCacheService.ExportKey("test", "1.0.0", "r2", "text/turtle", null, true);
+
+        var first = service.getOrRender(key, out -> out.write("first".getBytes(StandardCharsets.UTF_8)));
+        var second = service.getOrRender(updated, out -> out.write("second".getBytes(StandardCharsets.UTF_8)));
+
+        assertNotEquals(first.etag(), second.etag());
+        assertNotEquals(first.path(), second.path());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed() {
+        var service = new ExportCacheService(true, tempDir.toString(), 0L, 2, 10L);
+        var first = new ExportCacheService.ExportKey("first", "1.0.0", "r1", "text/turtle", null, true);
+        var second = new ExportCacheService.ExportKey("second", "1.0.0", "r1", "text/turtle", null, true);
+        var third = new ExportCacheService.ExportKey("third", "1.0.0", "r1", "text/turtle", null, true);
+        var renderCount = new AtomicInteger();
+        StreamingResponseBody renderer = out -> {
+            renderCount.incrementAndGet();
+            out.write("1234".getBytes(StandardCharsets.UTF_8));
+        };
+
+        var firstExport = service.getOrRender(first, renderer);
+        service.getOrRender(second, renderer);
+        service.getOrRender(first, renderer);
+        // too many entries, second is the least recently used
+        var thirdExport = service.getOrRender(third, renderer);
+        assertEquals(3, renderCount.get());
+        assertTrue(Files.exists(firstExport.path()));
+
+        service.getOrRender(second, renderer);
+        assertEquals(4, renderCount.get());
+
+        assertFalse(Files.exists(firstExport.path()));
+
+        // exceeds the size limit, only the new entry is kept
+        var large = new ExportCacheService.ExportKey("large", "1.0.0", "r1", "text/turtle", null, true);
+        var largeExport = service.getOrRender(large, out -> out.write("1234567890".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(Files.exists(thirdExport.path()));
+        assertTrue(Files.exists(largeExport.path()));
+    }
+
+    @Test
+    void shouldNotCacheUnsafeKeys() {
+        var service = new ExportCacheService(true, tempDir.toString(), 0L, 100, 1000L);
+
+        assertNull(service.getOrRender(new ExportCacheService.ExportKey("..", "1.0.0", "r1", "text/turtle", null, true), out -> {}));
+        assertNull(service.getOrRender(new ExportCacheService.ExportKey("test", "1.0.0", "r1", "application/pdf", null, true), out -> {}));
+        assertNull(service.getOrRender(new ExportCacheService.ExportKey("test", "1.0.0", "r1", "application/schema+json", "../fi", true), out -> {}));
+    }
+}
@@ -0,0 +1,124 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.common.Constants;
+import fi.vm.yti.common.enums.GraphType;
+import fi.vm.yti.common.exception.ResourceNotFoundException;
+import fi.vm.yti.common.properties.SuomiMeta;
+import fi.vm.yti.datamodel.api.v2.properties.DCAP;
+import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@Import({
+        GraphCatalogService.class
+})
+class GraphCatalogServiceTest {
+
+    private static final String GRAPH = Constants.DATA_MODEL_NAMESPACE + "test" + Constants.RESOURCE_SEPARATOR;
+
+    @MockBean
+    private CoreRepository coreRepository;
+
+    @Autowired
+    private GraphCatalogService graphCatalogService;
+
+    @BeforeEach
+    void setUp() {
+        // service is shared between the tests
+        graphCatalogService.invalidate("");
+    }
+
+    @Test
+    void testGetMetadata() {
+        var model = ModelFactory.createDefaultModel();
+        model.createResource(GRAPH)
+                .addProperty(RDF.type, OWL.Ontology)
+                .addProperty(RDF.type, SuomiMeta.ApplicationProfile)
+                .addProperty(DCAP.preferredXMLNamespacePrefix, "test")
+                .addProperty(RDFS.label, ResourceFactory.createLangLiteral("test label", "fi"))
+                .addProperty(DCTerms.contributor, ResourceFactory.createResource("urn:uuid:7d3a3c00-5a6b-489b-a3ed-63bb58c26a63"))
+                .addProperty(OWL.imports, ResourceFactory.createResource(Constants.DATA_MODEL_NAMESPACE + "int/"));
+        when(coreRepository.queryConstruct(any(Query.class))).thenReturn(model);
+
+        var metadata = graphCatalogService.get(GRAPH);
+
+        assertEquals(GraphType.PROFILE, metadata.type());
+        assertEquals("test", metadata.prefix());
+        assertEquals("test label", metadata.label().get("fi"));
+        assertEquals(Set.of("urn:uuid:7d3a3c00-5a6b-489b-a3ed-63bb58c26a63"), metadata.contributors());
+        assertEquals(Set.of(Constants.DATA_MODEL_NAMESPACE + "int/"), metadata.imports());
+        assertNull(metadata.version());
+
+        // served from the catalog until the graph is modified
+        graphCatalogService.get(GRAPH);
+        verify(coreRepository, times(1)).queryConstruct(any(Query.class));
+
+        graphCatalogService.invalidate(GRAPH);
+        graphCatalogService.get(GRAPH);
+        verify(coreRepository, times(2)).queryConstruct(any(Query.class));
+        verify(coreRepository, times(2)).querySelect(any(Query.class), any(Consumer.class));
+    }
+
+    @Test
+    void testGetMetadataNotFound() {
+        when(coreRepository.queryConstruct(any(Query.class))).thenReturn(ModelFactory.createDefaultModel());
+
+        assertThrows(ResourceNotFoundException.class, () -> graphCatalogService.get(GRAPH));
+    }
+
+    @Test
+    void testGetMetadataLoadsOnlyRequestedGraph() {
+        var other = Constants.DATA_MODEL_NAMESPACE + "other" + Constants.RESOURCE_SEPARATOR;
+        var dataset = DatasetFactory.createTxnMem();
+        for (var graph : new String[]{GRAPH, other}) {
+            var model = ModelFactory.createDefaultModel();
+            model.createResource(graph)
+                    .addProperty(RDF.type, OWL.Ontology)
+                    .addProperty(DCAP.preferredXMLNamespacePrefix, graph.equals(GRAPH) ? "test" : "other");
+            dataset.addNamedModel(graph, model);
+        }
+        when(coreRepository.queryConstruct(any(Query.class))).thenAnswer(invocation -> {
+            try (var exec = QueryExecutionFactory.create(invocation.<Query>getArgument(0), dataset)) {
+                return exec.execConstruct();
+            }
+        });
+        doAnswer(invocation -> {
+            Consumer<QuerySolution> consumer = invocation.getArgument(1);
+            try (var exec = QueryExecutionFactory.create(invocation.<Query>getArgument(0), dataset)) {
+                exec.execSelect().forEachRemaining(consumer);
+            }
+            return null;
+        }).when(coreRepository).querySelect(any(Query.class), any(Consumer.class));
+
+        var metadata = graphCatalogService.get(GRAPH);
+
+        assertEquals("test", metadata.prefix());
+        assertEquals(2, metadata.tripleCount());
+
+        // other graph is neither mixed into the result nor cached
+        assertEquals("other", graphCatalogService.get(other).prefix());
+        verify(coreRepository, times(2)).queryConstruct(any(Query.class));
+    }
+}
@@ -2,23 +2,35 @@ package fi.vm.yti.datamodel.api.v2.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.vm.yti.common.Constants;
+import fi.vm.yti.common.exception.ResourceNotFoundException;
 import fi.vm.yti.common.opensearch.OpenSearchClientWrapper;
+import fi.vm.yti.datamodel.api.v2.mapper.MapperTestUtils;
 import fi.vm.yti.datamodel.api.v2.security.DataModelAuthorizationManager;
 import fi.vm.yti.datamodel.api.v2.mapper.ModelMapper;
 import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.datamodel.api.v2.repository.ImportsRepository;
 import fi.vm.yti.security.AuthenticatedUserProvider;
+import fi.vm.yti.security.YtiUser;
 import org.apache.jena.query.Query;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ResIterator;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.indices.OpenSearchIndicesClient;
+import org.opensearch.client.transport.endpoints.BooleanResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.mockito.Mockito.*;
 
@@ -49,6 +61,18 @@ class IndexServiceTest {
     @MockBean
     OpenSearchClientWrapper client;
 
+    @MockBean
+    OpenSearchClient openSearchClient;
+
+    @MockBean
+    ModelVisibilityCache modelVisibilityCache;
+
+    @MockBean
+    ModelSummaryIndex modelSummaryIndex;
+
+    @MockBean
+    UriResolutionIndex uriResolutionIndex;
+
     @Autowired
     IndexService indexService;
 
@@ -63,6 +87,7 @@ class IndexServiceTest {
         indexService.initModelIndex();
 
         verify(coreRepository).queryConstruct(any(Query.class));
+        verify(modelSummaryIndex).load(anyList());
     }
 
     @Test
@@ -77,4 +102,81 @@ class IndexServiceTest {
 
         verify(coreRepository).querySelect(any(Query.class), any(Consumer.class));
     }
+
+    @Test
+    void initResourceIndexShouldContinueAfterFailedGraph() {
+        var graphs = List.of(Constants.DATA_MODEL_NAMESPACE + "broken/", Constants.DATA_MODEL_NAMESPACE + "test/");
+        doAnswer(invocation -> {
+            Consumer<QuerySolution> consumer = invocation.getArgument(1);
+            graphs.forEach(graph -> {
+                var solution = new QuerySolutionMap();
+                solution.add("g", ResourceFactory.createResource(graph));
+                consumer.accept(solution);
+            });
+            return null;
+        }).when(coreRepository).querySelect(any(Query.class), any(Consumer.class));
+        when(coreRepository.fetch(graphs.get(0))).thenThrow(new ResourceNotFoundException(graphs.get(0)));
+        when(coreRepository.fetch(graphs.get(1)))
+                .thenReturn(MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl"));
+
+        indexService.initResourceIndex();
+
+        verify(coreRepository).fetch(graphs.get(0));
+        verify(coreRepository).fetch(graphs.get(1));
+        verify(client, atLeastOnce()).bulkInsert(eq(IndexService.OPEN_SEARCH_INDEX_RESOURCE), anyList());
+    }
+
+    @Test
+    void reindexShouldSwapAlias() throws Exception {
+        var indices = mock(OpenSearchIndicesClient.class);
+        when(openSearchClient.indices()).thenReturn(indices);
+        when(indices.existsAlias(any(Function.class))).thenReturn(new BooleanResponse(false));
+        when(indices.exists(any(Function.class))).thenReturn(new BooleanResponse(true));
+        when(authorizationManager.hasRightToDropDatabase()).thenReturn(true);
+        when(userProvider.getUser()).thenReturn(YtiUser.ANONYMOUS_USER);
+        var model = mock(Model.class);
+        when(coreRepository.queryConstruct(any(Query.class))).thenReturn(model);
+        when(model.listSubjects()).thenReturn(mock(ResIterator.class));
+
+        indexService.reindex(IndexService.OPEN_SEARCH_INDEX_MODEL);
+
+        var inOrder = inOrder(indices, client);
+        inOrder.verify(indices).create(any(Function.class));
+        inOrder.verify(client).bulkInsert(startsWith(IndexService.OPEN_SEARCH_INDEX_MODEL + "_"), anyList());
+        inOrder.verify(indices).putSettings(any(Function.class));
+        inOrder.verify(indices).updateAliases(any(Function.class));
+        verify(indices, never()).delete(any(Function.class));
+    }
+
+    @Test
+    void reindexShouldReplayWritesMadeDuringRebuild() throws Exception {
+        var indices = mock(OpenSearchIndicesClient.class);
+        when(openSearchClient.indices()).thenReturn(indices);
+        when(indices.existsAlias(any(Function.class))).thenReturn(new BooleanResponse(false));
+        when(indices.exists(any(Function.class))).thenReturn(new BooleanResponse(true));
+        when(authorizationManager.hasRightToDropDatabase()).thenReturn(true);
+        when(userProvider.getUser()).thenReturn(YtiUser.ANONYMOUS_USER);
+        var model = mock(Model.class);
+        when(coreRepository.queryConstruct(any(Query.class))).thenReturn(model);
+        when(model.listSubjects()).thenReturn(mock(ResIterator.class));
+
+        // model removed while the new index is loaded
+        var graph = Constants.DATA_MODEL_NAMESPACE + "test/";
+        doAnswer(invocation -> {
+            indexService.deleteModelFromIndex(graph);
+            return null;
+        }).when(client).bulkInsert(startsWith(IndexService.OPEN_SEARCH_INDEX_MODEL + "_"), anyList());
+
+        indexService.reindex(IndexService.OPEN_SEARCH_INDEX_MODEL);
+
+        var inOrder = inOrder(indices, client);
+        inOrder.verify(client).removeFromIndex(IndexService.OPEN_SEARCH_INDEX_MODEL, graph);
+        inOrder.verify(client).removeFromIndex(startsWith(IndexService.OPEN_SEARCH_INDEX_MODEL + "_"), eq(graph));
+        inOrder.verify(indices).updateAliases(any(Function.class));
+
+        // writes after the swap go only to the alias
+        indexService.deleteModelFromIndex(graph);
+        verify(client, times(2)).removeFromIndex(IndexService.OPEN_SEARCH_INDEX_MODEL, graph);
+        verify(client, times(1)).removeFromIndex(startsWith(IndexService.OPEN_SEARCH_INDEX_MODEL + "_"), eq(graph));
+    }
 }
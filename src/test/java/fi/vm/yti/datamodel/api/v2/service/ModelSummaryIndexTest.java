@@ -0,0 +1,42 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelSummaryIndexTest {
+
+    @Test
+    void shouldKeepSummariesUpToDate() {
+        var index = new ModelSummaryIndex();
+        assertFalse(index.isLoaded());
+        index.load(List.of(createModel("test", "Test"), createModel("other", "Other")));
+        assertEquals(2, index.getSummaries().size());
+        assertTrue(index.isLoaded());
+
+        index.put(createModel("test", "Updated"));
+        var updated = index.getSummaries().get("https://iri.suomi.fi/model/test/");
+        assertEquals("test", updated.getPrefix());
+        assertEquals(Map.of("fi", "Updated"), updated.getLabel());
+
+        index.remove("https://iri.suomi.fi/model/other/");
+        assertFalse(index.getSummaries().containsKey("https://iri.suomi.fi/model/other/"));
+
+        index.load(List.of());
+        assertTrue(index.getSummaries().isEmpty());
+    }
+
+    private static IndexModel createModel(String prefix, String label) {
+        var model = new IndexModel();
+        model.setId("https://iri.suomi.fi/model/" + prefix + "/");
+        model.setPrefix(prefix);
+        model.setLabel(Map.of("fi", label));
+        return model;
+    }
+}
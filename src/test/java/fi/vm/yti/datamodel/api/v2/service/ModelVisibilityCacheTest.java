@@ -0,0 +1,31 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.common.enums.GraphType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModelVisibilityCacheTest {
+
+    @Test
+    void shouldLoadOncePerOrganizationsAndType() {
+        var cache = new ModelVisibilityCache(60L);
+        var organizations = Set.of(UUID.randomUUID());
+        var loadCount = new AtomicInteger();
+
+        cache.get(organizations, null, () -> Set.of("model-" + loadCount.incrementAndGet()));
+        var cached = cache.get(organizations, null, () -> Set.of("model-" + loadCount.incrementAndGet()));
+        assertEquals(Set.of("model-1"), cached);
+
+        cache.get(organizations, GraphType.LIBRARY, () -> Set.of("model-" + loadCount.incrementAndGet()));
+        assertEquals(2, loadCount.get());
+
+        cache.invalidateAll();
+        cached = cache.get(organizations, null, () -> Set.of("model-" + loadCount.incrementAndGet()));
+        assertEquals(Set.of("model-3"), cached);
+    }
+}
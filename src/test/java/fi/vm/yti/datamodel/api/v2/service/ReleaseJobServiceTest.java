@@ -0,0 +1,107 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.common.exception.ResourceNotFoundException;
+import fi.vm.yti.datamodel.api.v2.dto.ReleaseStatusDTO.JobStatus;
+import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
+import fi.vm.yti.datamodel.api.v2.service.ReleaseJobService.ReleaseStage;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.system.Txn;
+import org.apache.jena.update.UpdateAction;
+import org.apache.jena.update.UpdateRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReleaseJobServiceTest {
+
+    private static final DataModelURI URI = DataModelURI.Factory.createModelURI("test", "1.0.0");
+
+    private final CoreRepository coreRepository = mock(CoreRepository.class);
+    private final Dataset dataset = DatasetFactory.createTxnMem();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            Txn.executeWrite(dataset, () -> UpdateAction.execute(invocation.<UpdateRequest>getArgument(1), dataset));
+            return null;
+        }).when(coreRepository).queryUpdate(anyString(), any(UpdateRequest.class));
+        when(coreRepository.queryConstruct(any(Query.class))).thenAnswer(invocation ->
+                Txn.calculateRead(dataset, () -> {
+                    try (var exec = QueryExecutionFactory.create(invocation.<Query>getArgument(0), dataset)) {
+                        return exec.execConstruct();
+                    }
+                }));
+        when(coreRepository.queryAsk(any(Query.class))).thenAnswer(invocation ->
+                Txn.calculateRead(dataset, () -> {
+                    try (var exec = QueryExecutionFactory.create(invocation.<Query>getArgument(0), dataset)) {
+                        return exec.execAsk();
+                    }
+                }));
+    }
+
+    @Test
+    void shouldGetStatusFromAnotherInstance() {
+        var service = createService();
+        service.submit(URI, List.of(ReleaseStage.of("index", () -> {}))).join();
+
+        var status = createService().getStatus(URI);
+        assertEquals(JobStatus.DONE, status.getStatus());
+        assertEquals(JobStatus.DONE, status.getStages().get("index"));
+        assertNotNull(status.getFinished());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> createService().getStatus(DataModelURI.Factory.createModelURI("test", "2.0.0")));
+    }
+
+    @Test
+    void shouldResumeInterruptedJob() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var service = createService();
+        service.submit(URI, List.of(
+                ReleaseStage.of("index", () -> {}),
+                new ReleaseStage("exports", "index", () -> {
+                    started.countDown();
+                    try {
+                        new CountDownLatch(1).await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+        ));
+        started.await();
+        // doesn't wait for the stage, releases the lease of the job
+        service.shutdown();
+
+        var other = createService();
+        var index = new AtomicInteger();
+        var exports = new AtomicInteger();
+        other.resumeInterrupted(uri -> List.of(
+                ReleaseStage.of("index", index::incrementAndGet),
+                new ReleaseStage("exports", "index", exports::incrementAndGet)
+        ));
+        other.await(URI);
+
+        assertEquals(0, index.get());
+        assertEquals(1, exports.get());
+        var status = createService().getStatus(URI);
+        assertEquals(JobStatus.DONE, status.getStatus());
+        assertEquals(List.of("index", "exports"), List.copyOf(status.getStages().keySet()));
+
+        // finished job is not resumed again
+        createService().resumeInterrupted(uri -> fail("job resumed twice"));
+    }
+
+    private ReleaseJobService createService() {
+        return new ReleaseJobService(coreRepository, 0, 0L, 2, 86400L, 300L, 0L);
+    }
+}
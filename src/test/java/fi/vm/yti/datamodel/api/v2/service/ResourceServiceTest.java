@@ -19,7 +19,9 @@ import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import fi.vm.yti.security.AuthenticatedUserProvider;
 import fi.vm.yti.security.Role;
 import fi.vm.yti.security.YtiUser;
+import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
@@ -41,17 +43,20 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.net.URISyntaxException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @Import({
-        ResourceService.class
+        ResourceService.class,
+        BatchQueryExecutor.class
 })
 class ResourceServiceTest {
 
@@ -225,12 +230,29 @@ class ResourceServiceTest {
 
         verify(coreRepository).fetch(anyString());
         verify(authorizationManager).hasRightToModel(anyString(), any(Model.class));
+        verify(coreRepository, never()).querySelect(any(Query.class), any(Consumer.class));
         verify(coreRepository).deleteResource(DataModelURI.Factory
                 .createResourceURI("test", "identifier")
                 .getResourceURI());
         verify(indexService).deleteResourceFromIndex(anyString());
     }
 
+    @Test
+    void deleteReferencedResource() {
+        var uri = DataModelURI.Factory.createResourceURI("test", "identifier");
+        var model = ModelFactory.createDefaultModel();
+        model.createResource(uri.getModelURI() + "other")
+                .addProperty(RDFS.subClassOf, model.createResource(uri.getResourceURI()));
+
+        when(coreRepository.resourceExistsInGraph(anyString(), anyString())).thenReturn(true);
+        when(coreRepository.fetch(anyString())).thenReturn(model);
+        resourceService.delete("test", "identifier");
+
+        // references are queried only if the resource is referred in the model
+        verify(coreRepository).querySelect(any(Query.class), any(Consumer.class));
+        verify(coreRepository).deleteResource(uri.getResourceURI());
+    }
+
 
     @Test
     void copyPropertyShape() throws URISyntaxException {
@@ -396,6 +418,100 @@ class ResourceServiceTest {
         assertThrows(MappingError.class, () -> resourceService.renameResource("test", "resource-1", "foo"));
     }
 
+    @Test
+    void testFindResourceTypes() {
+        var coreRow = mock(QuerySolution.class);
+        when(coreRow.get("g")).thenReturn(ResourceFactory.createResource("https://iri.suomi.fi/model/test/1.0.0/"));
+        when(coreRow.get("s")).thenReturn(ResourceFactory.createResource("https://iri.suomi.fi/model/test/class-1"));
+        when(coreRow.get("type")).thenReturn(OWL.Class);
+
+        var importsRow = mock(QuerySolution.class);
+        when(importsRow.get("s")).thenReturn(ResourceFactory.createResource("http://www.w3.org/2000/01/rdf-schema#label"));
+        when(importsRow.get("type")).thenReturn(RDF.Property);
+
+        doAnswer(ans -> {
+            ans.getArgument(1, Consumer.class).accept(coreRow);
+            return null;
+        }).when(coreRepository).querySelect(any(Query.class), any(Consumer.class));
+        doAnswer(ans -> {
+            ans.getArgument(1, Consumer.class).accept(importsRow);
+            return null;
+        }).when(importsRepository).querySelect(any(Query.class), any(Consumer.class));
+
+        var types = resourceService.findResourceTypes(Set.of(
+                "https://iri.suomi.fi/model/test/1.0.0/class-1",
+                "https://iri.suomi.fi/model/test/1.0.0/class-2",
+                "http://www.w3.org/2000/01/rdf-schema#label"));
+
+        // single query per dataset
+        verify(coreRepository).querySelect(any(Query.class), any(Consumer.class));
+        verify(importsRepository).querySelect(any(Query.class), any(Consumer.class));
+
+        assertEquals(2, types.size());
+        assertEquals(Set.of(OWL.Class.getURI()), types.get("https://iri.suomi.fi/model/test/1.0.0/class-1"));
+        assertEquals(Set.of(RDF.Property.getURI()), types.get("http://www.w3.org/2000/01/rdf-schema#label"));
+    }
+
+    @Test
+    void testGetExternal() {
+        var uri = "http://www.w3.org/2000/01/rdf-schema#label";
+        var model = ModelFactory.createDefaultModel();
+        model.createResource(uri).addProperty(RDFS.label, "label", "en");
+        when(importsRepository.queryConstruct(any(Query.class))).thenReturn(model);
+
+        var external = resourceService.getExternal(uri);
+        assertEquals(uri, external.getUri());
+        assertEquals("label", external.getLabel().get("en"));
+
+        // description of the resource is cached
+        resourceService.getExternal(uri);
+        verify(importsRepository).queryConstruct(any(Query.class));
+        verify(importsRepository, never()).fetch(anyString());
+    }
+
+    @Test
+    void testGetExternalNotFound() {
+        when(importsRepository.queryConstruct(any(Query.class))).thenReturn(ModelFactory.createDefaultModel());
+        assertThrows(ResourceNotFoundException.class, () -> resourceService.getExternal("http://www.w3.org/2000/01/rdf-schema#foo"));
+    }
+
+    @Test
+    void testGetResourceReferencesFromDataset() {
+        var organizationId = USER.getOrganizations(Role.DATA_MODEL_EDITOR).iterator().next();
+        var ref = "https://iri.suomi.fi/model/ref/";
+        var dataset = DatasetFactory.createTxnMem();
+        // foo and bar refer to the resource, ref has an unrelated class
+        for (var prefix : List.of("ref", "foo", "bar")) {
+            var graph = "https://iri.suomi.fi/model/" + prefix + "/";
+            var model = ModelFactory.createDefaultModel();
+            model.createResource(graph)
+                    .addProperty(DCTerms.contributor, ResourceFactory.createResource("urn:uuid:" + organizationId));
+            var superClass = prefix.equals("ref") ? OWL.Thing : ResourceFactory.createResource(ref + "test");
+            model.createResource(graph + prefix + "-class")
+                    .addProperty(RDF.type, OWL.Class)
+                    .addProperty(RDFS.label, ResourceFactory.createLangLiteral(prefix, "fi"))
+                    .addProperty(RDFS.isDefinedBy, ResourceFactory.createResource(graph))
+                    .addProperty(RDFS.subClassOf, superClass);
+            dataset.addNamedModel(graph, model);
+        }
+        doAnswer(invocation -> {
+            Consumer<QuerySolution> consumer = invocation.getArgument(1);
+            try (var exec = QueryExecutionFactory.create(invocation.<Query>getArgument(0), dataset)) {
+                exec.execSelect().forEachRemaining(consumer);
+            }
+            return null;
+        }).when(coreRepository).querySelect(any(Query.class), any(Consumer.class));
+
+        var references = resourceService.getResourceReferences(ref + "test");
+
+        // unrelated resources are not reported
+        var uris = references.values().stream()
+                .flatMap(List::stream)
+                .map(r -> r.getResourceURI().getUri())
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("https://iri.suomi.fi/model/foo/foo-class", "https://iri.suomi.fi/model/bar/bar-class"), uris);
+    }
+
     @Test
     void testGetResourceReferences() {
         var organizationId = USER.getOrganizations(Role.DATA_MODEL_EDITOR).iterator().next();
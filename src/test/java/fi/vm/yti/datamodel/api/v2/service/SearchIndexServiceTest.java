@@ -14,7 +14,6 @@ import fi.vm.yti.datamodel.api.v2.opensearch.dto.ResourceSearchRequest;
 import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexModel;
 import fi.vm.yti.datamodel.api.v2.opensearch.queries.ModelQueryFactory;
 import fi.vm.yti.datamodel.api.v2.opensearch.queries.ResourceQueryFactory;
-import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
 import fi.vm.yti.security.YtiUser;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.ResourceFactory;
@@ -34,6 +33,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -56,7 +56,11 @@ class SearchIndexServiceTest {
     @MockBean
     private ResourceService resourceService;
     @MockBean
-    private CoreRepository coreRepository;
+    private GraphCatalogService graphCatalogService;
+    @MockBean
+    private ModelVisibilityCache modelVisibilityCache;
+    @MockBean
+    private ModelSummaryIndex modelSummaryIndex;
 
     @Captor
     private ArgumentCaptor<ResourceSearchRequest> resourceCaptor;
@@ -151,6 +155,9 @@ class SearchIndexServiceTest {
         // user's organizations
         when(groupManagementService.getOrganizationsForUser(any(YtiUser.class))).thenReturn(Set.of(ORGANIZATION_ID));
 
+        // always load visible models
+        when(modelVisibilityCache.get(anySet(), any(), any())).thenAnswer(a -> a.getArgument(2, Supplier.class).get());
+
         // external property for attribute list
         when(resourceService.findNodeShapeExternalProperties(DATA_MODEL_URI, OWL.DatatypeProperty))
                 .thenReturn(Set.of("ext-1"));
@@ -161,7 +168,8 @@ class SearchIndexServiceTest {
                 .addProperty(OWL.imports, ResourceFactory.createResource(Constants.DATA_MODEL_NAMESPACE + "model"))
                 .addProperty(OWL.imports, ResourceFactory.createResource("http://ext.org/datamodel"))
                 .addProperty(DCTerms.requires, ResourceFactory.createResource("http://uri.suomi.fi/terminology/test-123"));
-        when(coreRepository.fetch(DATA_MODEL_URI)).thenReturn(model);
+        when(graphCatalogService.get(DATA_MODEL_URI))
+                .thenReturn(GraphCatalogService.GraphMetadata.of(DATA_MODEL_URI, model.getResource(DATA_MODEL_URI), model.size()));
 
         var allowedModel = new IndexModel();
         allowedModel.setId("1");
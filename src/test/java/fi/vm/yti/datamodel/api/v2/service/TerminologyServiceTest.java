@@ -0,0 +1,72 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.datamodel.api.v2.dto.ConceptDTO;
+import fi.vm.yti.datamodel.api.v2.dto.SimpleResourceDTO;
+import fi.vm.yti.datamodel.api.v2.repository.TerminologyRepository;
+import org.apache.jena.query.Query;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.SKOS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@Import({
+        TerminologyService.class
+})
+class TerminologyServiceTest {
+
+    private static final String TERMINOLOGY = "http://uri.suomi.fi/terminology/test/";
+
+    @MockBean
+    TerminologyRepository terminologyRepository;
+
+    @Autowired
+    TerminologyService terminologyService;
+
+    @Test
+    void shouldMapConceptsWithSingleQuery() {
+        var model = ModelFactory.createDefaultModel();
+        model.createResource(TERMINOLOGY).addProperty(SKOS.prefLabel, "Test terminology", "fi");
+        model.createResource(TERMINOLOGY + "concept-1")
+                .addProperty(SKOS.prefLabel, "concept 1", "fi");
+        model.createResource(TERMINOLOGY + "concept-2")
+                .addProperty(SKOS.prefLabel, "concept 2", "fi");
+        when(terminologyRepository.queryConstruct(any(Query.class))).thenReturn(model);
+
+        var resources = List.of(
+                createResource(TERMINOLOGY + "concept-1"),
+                createResource(TERMINOLOGY + "concept-2"),
+                createResource(null));
+
+        terminologyService.mapConceptsToResources(resources);
+
+        verify(terminologyRepository).queryConstruct(any(Query.class));
+        assertEquals("concept 1", resources.get(0).getConcept().getLabel().get("fi"));
+        assertEquals("Test terminology", resources.get(0).getConcept().getTerminology().getLabel().get("fi"));
+        assertEquals("concept 2", resources.get(1).getConcept().getLabel().get("fi"));
+        assertNull(resources.get(2).getConcept());
+
+        // concepts are cached
+        var concepts = terminologyService.getConceptDTOs(Set.of(TERMINOLOGY + "concept-1", TERMINOLOGY + "concept-2"));
+        assertEquals(2, concepts.size());
+        verifyNoMoreInteractions(terminologyRepository);
+    }
+
+    private static SimpleResourceDTO createResource(String conceptURI) {
+        var concept = new ConceptDTO();
+        concept.setConceptURI(conceptURI);
+        var dto = new SimpleResourceDTO();
+        dto.setConcept(concept);
+        return dto;
+    }
+}
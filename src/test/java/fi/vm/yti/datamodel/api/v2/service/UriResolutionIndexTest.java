@@ -0,0 +1,56 @@
+package fi.vm.yti.datamodel.api.v2.service;
+
+import fi.vm.yti.common.opensearch.OpenSearchClientWrapper;
+import fi.vm.yti.common.opensearch.SearchResponseDTO;
+import fi.vm.yti.datamodel.api.v2.dto.ResourceType;
+import fi.vm.yti.datamodel.api.v2.opensearch.index.IndexResource;
+import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.core.SearchRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UriResolutionIndexTest {
+
+    @Test
+    void shouldCacheResourceTypeUntilIndexed() {
+        var client = mock(OpenSearchClientWrapper.class);
+        var index = new UriResolutionIndex(client, 600L, 100L);
+        var uri = DataModelURI.Factory.createResourceURI("test", "TestClass", "1.0.0");
+
+        var resource = new IndexResource();
+        resource.setId(uri.getResourceVersionURI());
+        resource.setResourceType(ResourceType.CLASS);
+        var response = new SearchResponseDTO<IndexResource>();
+        response.setResponseObjects(List.of(resource));
+        when(client.search(any(SearchRequest.class), eq(IndexResource.class))).thenReturn(response);
+
+        assertEquals(Optional.of(ResourceType.CLASS), index.getResourceType(uri));
+        assertEquals(Optional.of(ResourceType.CLASS), index.getResourceType(uri));
+        verify(client, times(1)).search(any(SearchRequest.class), eq(IndexResource.class));
+
+        index.invalidate(uri.getResourceVersionURI());
+        index.getResourceType(uri);
+        verify(client, times(2)).search(any(SearchRequest.class), eq(IndexResource.class));
+    }
+
+    @Test
+    void shouldNotCacheMissingResource() {
+        var client = mock(OpenSearchClientWrapper.class);
+        var index = new UriResolutionIndex(client, 600L, 100L);
+        var uri = DataModelURI.Factory.createResourceURI("test", "TestClass", "1.0.0");
+
+        var response = new SearchResponseDTO<IndexResource>();
+        response.setResponseObjects(List.of());
+        when(client.search(any(SearchRequest.class), eq(IndexResource.class))).thenReturn(response);
+
+        assertEquals(Optional.empty(), index.getResourceType(uri));
+        assertEquals(Optional.empty(), index.getResourceType(uri));
+        verify(client, times(2)).search(any(SearchRequest.class), eq(IndexResource.class));
+    }
+}
@@ -1,10 +1,9 @@
 package fi.vm.yti.datamodel.api.v2.service;
 
 import fi.vm.yti.common.Constants;
-import fi.vm.yti.datamodel.api.v2.mapper.MapperTestUtils;
-import fi.vm.yti.datamodel.api.v2.security.DataModelAuthorizationManager;
 import fi.vm.yti.common.exception.ResourceNotFoundException;
-import fi.vm.yti.datamodel.api.v2.repository.CoreRepository;
+import fi.vm.yti.datamodel.api.v2.security.DataModelAuthorizationManager;
+import fi.vm.yti.datamodel.api.v2.dto.ResourceType;
 import fi.vm.yti.datamodel.api.v2.utils.DataModelURI;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
@@ -22,6 +21,7 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,12 +33,12 @@ import static org.mockito.Mockito.when;
 })
 class UriResolveServiceTest {
 
-    @MockBean
-    private CoreRepository coreRepository;
     @MockBean
     private DataModelAuthorizationManager authorizationManager;
     @MockBean
-    private DataModelService dataModelService;
+    private GraphCatalogService graphCatalogService;
+    @MockBean
+    private UriResolutionIndex uriResolutionIndex;
 
     @Autowired
     private UriResolveService service;
@@ -51,6 +51,7 @@ class UriResolveServiceTest {
     }
     @Test
     void testRedirectSiteModel() {
+        mockGraph(DataModelURI.Factory.createModelURI("test", "1.0.1"), null);
         var accept = "text/html";
         var response = service.resolve(Constants.DATA_MODEL_NAMESPACE + "test/1.0.1/", accept);
         assertTrue(response.getStatusCode().is3xxRedirection());
@@ -60,8 +61,13 @@ class UriResolveServiceTest {
 
     @Test
     void testRedirectSiteResource() {
-        var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
-        when(coreRepository.fetch(anyString())).thenReturn(model);
+        mockGraph(DataModelURI.Factory.createModelURI("test", "1.0.1"), null);
+        when(uriResolutionIndex.getResourceType(argThat(u -> "TestClass".equals(u.getResourceId()))))
+                .thenReturn(Optional.of(ResourceType.CLASS));
+        when(uriResolutionIndex.getResourceType(argThat(u -> "TestAttribute".equals(u.getResourceId()))))
+                .thenReturn(Optional.of(ResourceType.ATTRIBUTE));
+        when(uriResolutionIndex.getResourceType(argThat(u -> "TestAssociation".equals(u.getResourceId()))))
+                .thenReturn(Optional.of(ResourceType.ASSOCIATION));
 
         var pathMap = Map.of(
                 Constants.DATA_MODEL_NAMESPACE + "test/1.0.1/TestClass", "/model/test/class/TestClass?ver=1.0.1",
@@ -79,9 +85,6 @@ class UriResolveServiceTest {
 
     @Test
     void testRedirectSerializedResource() {
-        var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_with_resources.ttl");
-        when(coreRepository.fetch(anyString())).thenReturn(model);
-
         var accept = "text/turtle";
         var response = service.resolve(Constants.DATA_MODEL_NAMESPACE + "test/1.0.1/TestClass", accept);
         assertTrue(response.getStatusCode().is4xxClientError());
@@ -106,7 +109,7 @@ class UriResolveServiceTest {
     void testRedirectLatestVersion() {
         var uri = DataModelURI.Factory.createModelURI("test");
 
-        when(dataModelService.getLatestVersion(any(DataModelURI.class))).thenReturn("1.0.0");
+        mockGraph(uri, DataModelURI.Factory.createModelURI("test", "1.0.0").getGraphURI());
 
         var response = service.resolve(uri.getGraphURI(), "text/html");
 
@@ -119,7 +122,7 @@ class UriResolveServiceTest {
     void testRedirectDraftVersion() {
         var uri = DataModelURI.Factory.createModelURI("test");
 
-        when(dataModelService.getLatestVersion(any(DataModelURI.class))).thenThrow(new ResourceNotFoundException("test"));
+        mockGraph(uri, null);
 
         var response = service.resolve(uri.getGraphURI(), "text/html");
 
@@ -128,14 +131,25 @@ class UriResolveServiceTest {
         assertTrue(response.getHeaders().getLocation().toString().endsWith("/model/test?draft"));
     }
 
+    @Test
+    void testRedirectUnknownModel() {
+        when(graphCatalogService.get(anyString())).thenThrow(new ResourceNotFoundException("unknown"));
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> service.resolve(Constants.DATA_MODEL_NAMESPACE + "unknown/", "text/html"));
+        assertThrows(ResourceNotFoundException.class,
+                () -> service.resolve(Constants.DATA_MODEL_NAMESPACE + "unknown/1.0.0/TestClass", "text/html"));
+    }
+
     @Test
     void testV1RedirectsPublishedVersion() {
         var uri = DataModelURI.Factory.createModelURI("test", "1.0.0");
         var model = ModelFactory.createDefaultModel();
-        model.createResource(uri.getModelURI())
+        var resource = model.createResource(uri.getModelURI())
                         .addProperty(OWL.priorVersion, ResourceFactory.createResource(uri.getGraphURI()));
 
-        when(coreRepository.fetch(uri.getDraftGraphURI())).thenReturn(model);
+        when(graphCatalogService.get(uri.getDraftGraphURI()))
+                .thenReturn(GraphCatalogService.GraphMetadata.of(uri.getDraftGraphURI(), resource, model.size()));
 
         var modelUrl = service.resolveLegacyURL("test", null);
         var resourceUrl = service.resolveLegacyURL("test", "class-1");
@@ -150,8 +164,10 @@ class UriResolveServiceTest {
     void testV1RedirectsDraftVersion() {
         var uri = DataModelURI.Factory.createModelURI("test");
         var model = ModelFactory.createDefaultModel();
+        var resource = model.createResource(uri.getModelURI());
 
-        when(coreRepository.fetch(uri.getDraftGraphURI())).thenReturn(model);
+        when(graphCatalogService.get(uri.getDraftGraphURI()))
+                .thenReturn(GraphCatalogService.GraphMetadata.of(uri.getDraftGraphURI(), resource, model.size()));
 
         var modelUrl = service.resolveLegacyURL("test", null);
         var resourceUrl = service.resolveLegacyURL("test", "class-1");
@@ -161,4 +177,14 @@ class UriResolveServiceTest {
         assertEquals(Constants.DATA_MODEL_NAMESPACE + "test/class-1", resourceUrl);
         assertEquals(Constants.DATA_MODEL_NAMESPACE + "test/class-1", fragmentUrl);
     }
+
+    private void mockGraph(DataModelURI uri, String priorVersion) {
+        var model = ModelFactory.createDefaultModel();
+        var resource = model.createResource(uri.getModelURI());
+        if (priorVersion != null) {
+            resource.addProperty(OWL.priorVersion, ResourceFactory.createResource(priorVersion));
+        }
+        when(graphCatalogService.get(uri.getGraphURI()))
+                .thenReturn(GraphCatalogService.GraphMetadata.of(uri.getGraphURI(), resource, model.size()));
+    }
 }
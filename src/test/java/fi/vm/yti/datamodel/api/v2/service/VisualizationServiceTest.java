@@ -22,6 +22,7 @@ import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -41,7 +42,8 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @Import({
-        VisualizationService.class
+        VisualizationService.class,
+        BatchQueryExecutor.class
 })
 class VisualizationServiceTest {
 
@@ -56,12 +58,24 @@ class VisualizationServiceTest {
     private AuthenticatedUserProvider userProvider;
     @MockBean
     private SearchIndexService searchIndexService;
+    @MockBean
+    private GraphCatalogService graphCatalogService;
     @Captor
     private ArgumentCaptor<Model> modelCaptor;
 
     @Autowired
     private VisualizationService visualizationService;
 
+    @BeforeEach
+    void setUp() {
+        // service is shared between the tests
+        visualizationService.invalidateCache("");
+
+        var graph = Constants.DATA_MODEL_NAMESPACE + "test-model" + Constants.RESOURCE_SEPARATOR;
+        var modelResource = ModelFactory.createDefaultModel().createResource(graph);
+        when(graphCatalogService.get(anyString())).thenReturn(GraphCatalogService.GraphMetadata.of(graph, modelResource, 0));
+    }
+
     @Test
     void testMapVisualizationDataLibrary() {
         var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_visualization.ttl");
@@ -104,6 +118,9 @@ class VisualizationServiceTest {
         assertNotNull(extClass);
 
         assertEquals(0, visualizationData.getHiddenNodes().size());
+
+        // external resources of all classes are searched with a single query
+        verify(searchIndexService).findResourcesByURI(anySet(), isNull());
     }
 
     @Test
@@ -115,11 +132,12 @@ class VisualizationServiceTest {
 
         when(coreRepository.fetch(anyString())).thenReturn(model);
         when(coreRepository.fetch(graph)).thenReturn(positionModel);
-        when(resourceService.findResources(anySet(), anySet())).thenReturn(externalPropertiesModel);
+        when(resourceService.findResourcesInBatches(anySet(), anySet())).thenReturn(externalPropertiesModel);
 
 
         var visualizationData = visualizationService.getVisualizationData("visuprof", null);
 
+        verify(resourceService).findResourcesInBatches(anySet(), anySet());
         assertEquals(3, visualizationData.getNodes().size());
 
         var person = findClass(visualizationData.getNodes(), "person");
@@ -138,6 +156,30 @@ class VisualizationServiceTest {
         assertEquals(1, visualizationData.getHiddenNodes().size());
     }
 
+    @Test
+    void testVisualizationDataIsCachedUntilGraphIsModified() {
+        var model = MapperTestUtils.getModelFromFile("/models/test_datamodel_library_visualization.ttl");
+        var modelGraph = Constants.DATA_MODEL_NAMESPACE + "visu" + Constants.RESOURCE_SEPARATOR;
+        var positionGraph = ModelConstants.MODEL_POSITIONS_NAMESPACE + "visu" + Constants.RESOURCE_SEPARATOR;
+        when(coreRepository.fetch(anyString())).thenReturn(model);
+        when(searchIndexService.findResourcesByURI(anySet(), isNull())).thenReturn(new SearchResponseDTO<>());
+
+        var first = visualizationService.getVisualizationData("visu", null);
+        var second = visualizationService.getVisualizationData("visu", null);
+
+        assertSame(first, second);
+        verify(coreRepository).fetch(modelGraph);
+
+        // changes to other models do not affect the cached result
+        visualizationService.invalidateCache(ModelConstants.MODEL_POSITIONS_NAMESPACE + "other" + Constants.RESOURCE_SEPARATOR);
+        visualizationService.invalidateCache(positionGraph + "1.0.0/");
+        assertSame(first, visualizationService.getVisualizationData("visu", null));
+
+        visualizationService.invalidateCache(positionGraph);
+        assertNotSame(first, visualizationService.getVisualizationData("visu", null));
+        verify(coreRepository, times(2)).fetch(modelGraph);
+    }
+
     @Test
     void savePositionsNoAuth(){
         assertThrows(AuthorizationException.class,
@@ -202,6 +244,17 @@ class VisualizationServiceTest {
         verify(coreRepository).put(eq(graphURI + "1.0.0" + Constants.RESOURCE_SEPARATOR), any(Model.class));
     }
 
+    @Test
+    void saveVersionedPositionsAlreadySaved() {
+        var graphURI = ModelConstants.MODEL_POSITIONS_NAMESPACE + "test-model" + Constants.RESOURCE_SEPARATOR;
+        when(coreRepository.graphExists(graphURI + "1.0.0" + Constants.RESOURCE_SEPARATOR)).thenReturn(true);
+
+        visualizationService.saveVersionedPositions("test-model", "1.0.0");
+
+        verify(coreRepository, never()).fetch(anyString());
+        verify(coreRepository, never()).put(anyString(), any(Model.class));
+    }
+
     @Test
     void testAddDefaultPosition() {
         var positionURI = ModelConstants.MODEL_POSITIONS_NAMESPACE + "test" + Constants.RESOURCE_SEPARATOR;